@@ -0,0 +1,141 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import fr.astrocommunity.Greysi.Web.services.DataCollector;
+import fr.astrocommunity.Greysi.Web.services.SectionTiers;
+import fr.astrocommunity.Greysi.Web.services.SessionTracker;
+import fr.astrocommunity.Greysi.Web.snapshot.BotSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CollectBenchmark - Cost of each DataCollector section on scenes of 10/100/1000 entities
+ *
+ * Run with -prof gc: ops/s is the capture throughput, gc.alloc.rate.norm the bytes per capture.
+ * The fakes answer through reflection, so absolute times are higher than in game; compare runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int entityCount;
+
+    private DataCollector collector;
+    private SessionTracker sessionTracker;
+    private BotSnapshot snapshot;
+    private SectionTiers tiers;
+    private BotSnapshot collected; // Holds the galaxy the carried captures copy
+
+    @Setup
+    public void setup() {
+        FakeScene scene = new FakeScene(entityCount);
+        collector = scene.collector();
+        sessionTracker = new SessionTracker(scene.stats);
+        snapshot = new BotSnapshot();
+        snapshot.data = collector.collectBasicInfo("Greysi_123456", "Greysi", 123456);
+
+        // Every tier just collected, as in the minute after a full capture
+        collected = new BotSnapshot();
+        Map<String, Object> data = collectAll(collector, sessionTracker, collected);
+        tiers = new SectionTiers();
+        long now = System.currentTimeMillis() + 3_600_000L; // Far enough that nothing falls due mid-run
+        tiers.collected(SectionTiers.Section.STATS, now, 0, data);
+        tiers.collected(SectionTiers.Section.CONFIG, now, collector.configVersion(), data);
+        tiers.collected(SectionTiers.Section.GALAXY, now, collector.galaxyVersion(), data);
+    }
+
+    @Benchmark
+    public Map<String, Object> collectBasicInfo() {
+        return collector.collectBasicInfo("Greysi_123456", "Greysi", 123456);
+    }
+
+    @Benchmark
+    public Object collectHeroData() {
+        collector.collectHeroData(snapshot);
+        return snapshot.hero;
+    }
+
+    @Benchmark
+    public Object collectTargetInfo() {
+        collector.collectTargetInfo(snapshot);
+        return snapshot.target;
+    }
+
+    @Benchmark
+    public Object collectStatsData() {
+        collector.collectStatsData(snapshot.data, sessionTracker);
+        return snapshot.data;
+    }
+
+    @Benchmark
+    public Object collectEntities() {
+        collector.collectEntities(snapshot);
+        return snapshot.entities;
+    }
+
+    @Benchmark
+    public Object collectGalaxyInfo() {
+        collector.collectGalaxyInfo(snapshot);
+        return snapshot.galaxy;
+    }
+
+    @Benchmark
+    public Object collectConfigData() {
+        collector.collectConfigData(snapshot.data);
+        return snapshot.data;
+    }
+
+    /**
+     * A capture between tier refreshes: stats, config and galaxy are only fingerprinted and carried
+     */
+    @Benchmark
+    public Map<String, Object> collectCarried() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> data = collector.collectBasicInfo("Greysi_123456", "Greysi", 123456);
+        snapshot.data = data;
+        collector.collectModuleInfo(data);
+        collector.collectHeroData(snapshot);
+        if (!tiers.isDue(SectionTiers.Section.STATS, now, 0)) tiers.carry(SectionTiers.Section.STATS, data);
+        collector.collectMapData(data);
+        collector.collectPerformanceData(data, sessionTracker);
+        collector.collectTargetInfo(snapshot);
+        if (!tiers.isDue(SectionTiers.Section.CONFIG, now, collector.configVersion())) {
+            tiers.carry(SectionTiers.Section.CONFIG, data);
+        }
+        collector.collectEntities(snapshot);
+        if (!tiers.isDue(SectionTiers.Section.GALAXY, now, collector.galaxyVersion())) {
+            snapshot.galaxy.copyFrom(collected.galaxy);
+            if (snapshot.galaxy.present) data.put("galaxy", snapshot.galaxy);
+        }
+        return data;
+    }
+
+    /**
+     * One full capture with every tier due, as GreysiWebClient.collectAllData does it (minus the backpage hangars)
+     */
+    @Benchmark
+    public Map<String, Object> collectAll() {
+        return collectAll(collector, sessionTracker, snapshot);
+    }
+
+    static Map<String, Object> collectAll(DataCollector collector, SessionTracker sessionTracker, BotSnapshot snapshot) {
+        Map<String, Object> data = collector.collectBasicInfo("Greysi_123456", "Greysi", 123456);
+        snapshot.data = data;
+        collector.collectModuleInfo(data);
+        collector.collectHeroData(snapshot);
+        collector.collectStatsData(data, sessionTracker);
+        collector.collectMapData(data);
+        collector.collectPerformanceData(data, sessionTracker);
+        collector.collectTargetInfo(snapshot);
+        collector.collectConfigData(data);
+        collector.collectEntities(snapshot);
+        collector.collectGalaxyInfo(snapshot);
+        return data;
+    }
+}
@@ -0,0 +1,192 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import eu.darkbot.api.game.entities.BattleStation;
+import eu.darkbot.api.game.entities.Box;
+import eu.darkbot.api.game.entities.Npc;
+import eu.darkbot.api.game.entities.Player;
+import eu.darkbot.api.game.entities.Portal;
+import eu.darkbot.api.game.entities.Station;
+import eu.darkbot.api.game.galaxy.GalaxyInfo;
+import eu.darkbot.api.game.galaxy.GateInfo;
+import eu.darkbot.api.game.other.EntityInfo;
+import eu.darkbot.api.game.other.GameMap;
+import eu.darkbot.api.game.other.Health;
+import eu.darkbot.api.game.other.LocationInfo;
+import eu.darkbot.api.managers.BotAPI;
+import eu.darkbot.api.managers.ConfigAPI;
+import eu.darkbot.api.managers.EntitiesAPI;
+import eu.darkbot.api.managers.GalaxySpinnerAPI;
+import eu.darkbot.api.managers.GroupAPI;
+import eu.darkbot.api.managers.HeroAPI;
+import eu.darkbot.api.managers.StarSystemAPI;
+import eu.darkbot.api.managers.StatsAPI;
+import fr.astrocommunity.Greysi.Web.Fakes;
+import fr.astrocommunity.Greysi.Web.services.DataCollector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FakeScene - A map with a hero, its target and any number of entities, for the collectors
+ *
+ * Entities are 60% NPCs, 20% boxes, 10% players and 10% portals, stations and battle stations,
+ * at fixed pseudo-random positions so every run sees the same scene.
+ */
+public final class FakeScene {
+    public final HeroAPI hero;
+    public final BotAPI bot;
+    public final StatsAPI stats;
+    public final EntitiesAPI entities;
+    public final StarSystemAPI starSystem;
+    public final GroupAPI group;
+    public final ConfigAPI config;
+    public final GalaxySpinnerAPI galaxySpinner;
+
+    public FakeScene(int entityCount) {
+        this(entityCount, "Greysi", 123456, null);
+    }
+
+    /**
+     * Scene of one bot among many - bot may be null for an always-running one
+     */
+    public FakeScene(int entityCount, String username, int heroId, BotAPI bot) {
+        List<Npc> npcs = new ArrayList<>();
+        List<Box> boxes = new ArrayList<>();
+        List<Player> players = new ArrayList<>();
+        List<Portal> portals = new ArrayList<>();
+        List<Station> stations = new ArrayList<>();
+        List<BattleStation> battleStations = new ArrayList<>();
+
+        Health fullHealth = health(1.0, 200_000, 200_000);
+        for (int i = 0; i < entityCount; i++) {
+            Map<String, Object> e = new HashMap<>();
+            e.put("getId", 1000 + i);
+            e.put("getLocationInfo", location((i * 379) % 21000 + 0.25, (i * 911) % 13100 + 0.5));
+
+            int kind = i % 10;
+            if (kind < 6) {
+                e.put("getEntityInfo", info("-=[ Streuner ]=-", "", true));
+                e.put("getHealth", fullHealth);
+                npcs.add(Fakes.fake(Npc.class, e));
+            } else if (kind < 8) {
+                boxes.add(Fakes.fake(Box.class, e));
+            } else if (kind == 8) {
+                e.put("getEntityInfo", info("Player" + i, "CLAN", i % 20 == 8));
+                players.add(Fakes.fake(Player.class, e));
+            } else if (i % 30 == 9) {
+                portals.add(Fakes.fake(Portal.class, e));
+            } else if (i % 30 == 19) {
+                stations.add(Fakes.fake(Station.class, e));
+            } else {
+                e.put("getEntityInfo", info("Owner", "CLAN", true));
+                battleStations.add(Fakes.fake(BattleStation.class, e));
+            }
+        }
+
+        Map<String, Object> h = new HashMap<>();
+        h.put("getId", heroId);
+        h.put("getShipId", 10);
+        h.put("getSpeed", 540);
+        h.put("getLocationInfo", location(10234.56, 6021.3));
+        h.put("getHealth", health(0.85, 256_000, 120_000));
+        h.put("getEntityInfo", info(username, "CLAN", false));
+        h.put("getTarget", npcs.isEmpty() ? null : npcs.get(0));
+        hero = Fakes.fake(HeroAPI.class, h);
+
+        if (bot == null) {
+            Map<String, Object> b = new HashMap<>();
+            b.put("isRunning", true);
+            bot = Fakes.fake(BotAPI.class, b);
+        }
+        this.bot = bot;
+
+        Map<String, Object> statValues = new HashMap<>();
+        statValues.put("CREDITS", 123_456_789.0);
+        statValues.put("URIDIUM", 98_765.0);
+        statValues.put("EXPERIENCE", 5_000_000_000.0);
+        statValues.put("HONOR", 1_234_567.0);
+        statValues.put("CARGO", 120.0);
+        statValues.put("MAX_CARGO", 2000.0);
+        Map<String, Object> s = new HashMap<>();
+        s.put("getStatValue", (Fakes.Answer) args -> statValues.getOrDefault(String.valueOf(args[0]), 0.0));
+        s.put("getLevel", 24);
+        s.put("getPing", 42);
+        stats = Fakes.fake(StatsAPI.class, s);
+
+        Map<String, Object> en = new HashMap<>();
+        en.put("getNpcs", npcs);
+        en.put("getBoxes", boxes);
+        en.put("getPlayers", players);
+        en.put("getPortals", portals);
+        en.put("getStations", stations);
+        en.put("getBattleStations", battleStations);
+        entities = Fakes.fake(EntitiesAPI.class, en);
+
+        Map<String, Object> m = new HashMap<>();
+        m.put("getId", 3);
+        m.put("getName", "1-3");
+        GameMap map = Fakes.fake(GameMap.class, m);
+        Map<String, Object> ss = new HashMap<>();
+        ss.put("getCurrentMap", map);
+        starSystem = Fakes.fake(StarSystemAPI.class, ss);
+
+        group = Fakes.fake(GroupAPI.class);
+
+        Map<String, Object> c = new HashMap<>();
+        c.put("getCurrentProfile", "default");
+        c.put("getConfigProfiles", Arrays.asList("default", "npc", "gg", "pvp", "collect"));
+        config = Fakes.fake(ConfigAPI.class, c);
+
+        Map<String, Object> gate = new HashMap<>();
+        gate.put("getCurrentParts", 12);
+        gate.put("getTotalParts", 34);
+        gate.put("getCurrentWave", 3);
+        gate.put("getTotalWave", 40);
+        gate.put("getLivesLeft", 5);
+        GateInfo gateInfo = Fakes.fake(GateInfo.class, gate);
+        Map<String, Object> g = new HashMap<>();
+        g.put("getUridium", 98_765);
+        g.put("getFreeEnergy", 10);
+        g.put("getEnergyCost", 100);
+        g.put("getGateInfo", gateInfo);
+        GalaxyInfo galaxyInfo = Fakes.fake(GalaxyInfo.class, g);
+        Map<String, Object> gs = new HashMap<>();
+        gs.put("getGalaxyInfo", galaxyInfo);
+        galaxySpinner = Fakes.fake(GalaxySpinnerAPI.class, gs);
+    }
+
+    /**
+     * Collector over this scene (no backpage - hangars are not collected)
+     */
+    public DataCollector collector() {
+        return new DataCollector(hero, bot, stats, entities, starSystem, group, config, galaxySpinner);
+    }
+
+    private static LocationInfo location(double x, double y) {
+        Map<String, Object> l = new HashMap<>();
+        l.put("getX", x);
+        l.put("getY", y);
+        return Fakes.fake(LocationInfo.class, l);
+    }
+
+    private static Health health(double hpPercent, int hp, int shield) {
+        Map<String, Object> h = new HashMap<>();
+        h.put("hpPercent", hpPercent);
+        h.put("getHp", hp);
+        h.put("getMaxHp", (int) (hp / hpPercent));
+        h.put("getShield", shield);
+        h.put("getMaxShield", shield);
+        return Fakes.fake(Health.class, h);
+    }
+
+    private static EntityInfo info(String username, String clanTag, boolean enemy) {
+        Map<String, Object> i = new HashMap<>();
+        i.put("getUsername", username);
+        i.put("getClanTag", clanTag);
+        i.put("isEnemy", enemy);
+        return Fakes.fake(EntityInfo.class, i);
+    }
+}
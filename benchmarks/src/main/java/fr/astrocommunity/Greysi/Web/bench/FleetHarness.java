@@ -0,0 +1,221 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import eu.darkbot.api.config.ConfigSetting;
+import eu.darkbot.api.managers.BotAPI;
+import eu.darkbot.api.managers.PetAPI;
+import fr.astrocommunity.Greysi.Web.Fakes;
+import fr.astrocommunity.Greysi.Web.GreysiWebClient;
+import fr.astrocommunity.Greysi.Web.utils.Histogram;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FleetHarness - Hundreds of GreysiWebClient instances in one JVM against a StandInServer
+ *
+ *     java -cp target/benchmarks.jar fr.astrocommunity.Greysi.Web.bench.FleetHarness bots=300 duration=60
+ *
+ * Every bot gets its own FakeScene and is ticked at game rate. The harness keeps issuing
+ * start/stop commands to random bots and times them until the bot runs them. After the warmup,
+ * it reports upload sizes, sample age at the server (capture to arrival), command latency, the
+ * upload round trip the bots measured themselves and the CPU used by everything but the stand-in server.
+ */
+public final class FleetHarness {
+    private static final long TICK_MILLIS = 50;
+
+    private FleetHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int bots = intOption(options, "bots", 300);
+        int entities = intOption(options, "entities", 100);
+        int keys = intOption(options, "keys", 1);
+        int warmup = intOption(options, "warmup", 15);
+        int duration = intOption(options, "duration", 60);
+        double commandsPerSecond = doubleOption(options, "commands", 5);
+        boolean verbose = Boolean.parseBoolean(options.getOrDefault("verbose", "false"));
+
+        StandInServer server = new StandInServer(
+                Boolean.parseBoolean(options.getOrDefault("multiplex", "true")),
+                intOption(options, "latency", 50),
+                intOption(options, "jitter", 20),
+                doubleOption(options, "errors", 0.01),
+                doubleOption(options, "timeouts", 0.001),
+                intOption(options, "timeoutDelay", 4000),
+                intOption(options, "serverThreads", 64));
+
+        PrintStream report = System.out;
+        if (!verbose) {
+            PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+            System.setOut(quiet);
+            System.setErr(quiet);
+        }
+
+        // Bots, each with its own scene; setRunning completes the command timing
+        Map<String, Long> issued = new ConcurrentHashMap<>();
+        Recorder commandLatency = new Recorder();
+        List<GreysiWebClient> clients = new ArrayList<>();
+        List<String> botIds = new ArrayList<>();
+        for (int i = 0; i < bots; i++) {
+            String username = "Fleet" + i;
+            int heroId = 100_000 + i;
+            String botId = username + "_" + heroId;
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            Map<String, Object> b = new HashMap<>();
+            b.put("isRunning", (Fakes.Answer) a -> running.get());
+            b.put("setRunning", (Fakes.Answer) a -> {
+                running.set((Boolean) a[0]);
+                Long at = issued.remove(botId);
+                if (at != null) commandLatency.record(System.currentTimeMillis() - at);
+                return null;
+            });
+            FakeScene scene = new FakeScene(entities, username, heroId, Fakes.fake(BotAPI.class, b));
+
+            GreysiWebClient client = new GreysiWebClient(scene.hero, scene.bot, scene.stats, scene.entities,
+                    scene.starSystem, scene.group, Fakes.fake(PetAPI.class), scene.config, scene.galaxySpinner);
+            GreysiWebClient.Config config = new GreysiWebClient.Config();
+            config.API_KEY = "fleet-key-" + (i % keys);
+            config.SERVER_URL = server.getUrl();
+            client.setConfig(setting(config));
+            client.install(null);
+            clients.add(client);
+            botIds.add(botId);
+        }
+
+        // Game ticks, staggered so the bots do not all capture at once
+        AtomicInteger gameThreads = new AtomicInteger();
+        ScheduledExecutorService game = Executors.newScheduledThreadPool(4, r -> {
+            Thread t = new Thread(r, "Fleet-Game-" + gameThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < clients.size(); i++) {
+            GreysiWebClient client = clients.get(i);
+            game.scheduleAtFixedRate(() -> {
+                try {
+                    client.tick();
+                } catch (Exception e) {
+                    // A failing bot must not stop its tick
+                }
+            }, i % TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        // Commands to random bots - one outstanding per bot, so its latency is unambiguous
+        if (commandsPerSecond > 0) {
+            AtomicBoolean start = new AtomicBoolean(false);
+            game.scheduleAtFixedRate(() -> {
+                String botId = botIds.get(ThreadLocalRandom.current().nextInt(botIds.size()));
+                if (issued.putIfAbsent(botId, System.currentTimeMillis()) == null) {
+                    server.queueCommand(botId, start.getAndSet(!start.get()) ? "start" : "stop");
+                }
+            }, 0, (long) (1_000_000 / commandsPerSecond), TimeUnit.MICROSECONDS);
+        }
+
+        report.println("Fleet: " + bots + " bots x " + entities + " entities, " + keys + " API key(s)");
+        report.println("Server: " + server.describe());
+        report.println("Warming up " + warmup + " s, measuring " + duration + " s...");
+        Thread.sleep(warmup * 1000L);
+
+        server.requestBytes.reset();
+        server.sampleAge.reset();
+        commandLatency.reset();
+        long samples = server.samples.get();
+        int errors = server.errors.get();
+        int timeouts = server.timeouts.get();
+        Histogram warmupRtt = clientRtt(clients);
+        long cpu = clientCpuNanos();
+        long startedAt = System.nanoTime();
+
+        Thread.sleep(duration * 1000L);
+
+        Histogram rtt = clientRtt(clients);
+        rtt.add(warmupRtt, -1);
+
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        double cpuSeconds = (clientCpuNanos() - cpu) / 1e9;
+        samples = server.samples.get() - samples;
+        long requests = server.requestBytes.count();
+
+        report.println();
+        report.printf("Requests:        %d (%.1f/s), %d samples (%.1f/s)%n", requests, requests / seconds, samples, samples / seconds);
+        report.printf("Injected faults: %d errors, %d timeouts%n", server.errors.get() - errors, server.timeouts.get() - timeouts);
+        report.println("Request size:    " + server.requestBytes.summary(" B"));
+        report.printf("Bytes per sample: %d%n", samples == 0 ? 0 : server.requestBytes.sum() / samples);
+        report.println("Sample age:      " + server.sampleAge.summary(" ms") + "  (capture -> server)");
+        report.println("Command latency: " + commandLatency.summary(" ms") + "  (issued -> run by the bot)");
+        report.printf("Upload RTT:      n=%d p50<=%.1f p99<=%.1f ms  (as the bots measured it, bucket bounds)%n",
+                rtt.count(), rtt.percentile(50) / 1e6, rtt.percentile(99) / 1e6);
+        report.printf("Client CPU:      %.1f%% of one core, %.1f ms per bot per minute (JVM overhead included)%n",
+                cpuSeconds / seconds * 100, cpuSeconds * 1000 / bots / (seconds / 60));
+
+        game.shutdownNow();
+        server.stop();
+        System.exit(0);
+    }
+
+    /**
+     * Upload round trips of all bots, merged
+     */
+    private static Histogram clientRtt(List<GreysiWebClient> clients) {
+        Histogram merged = null;
+        for (GreysiWebClient client : clients) {
+            Histogram rtt = client.getMetrics().getRtt();
+            if (merged == null) merged = rtt.copy();
+            else merged.add(rtt, 1);
+        }
+        return merged;
+    }
+
+    /**
+     * Process CPU minus the stand-in server's threads
+     */
+    private static long clientCpuNanos() {
+        long process = ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long server = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null) continue;
+            String name = info.getThreadName();
+            if (name.startsWith(StandInServer.THREAD_PREFIX) || name.startsWith("HTTP-Dispatcher")) {
+                long time = threads.getThreadCpuTime(info.getThreadId());
+                if (time > 0) server += time;
+            }
+        }
+        return process - server;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConfigSetting<GreysiWebClient.Config> setting(GreysiWebClient.Config config) {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getValue", config);
+        return Fakes.fake(ConfigSetting.class, answers);
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+}
@@ -0,0 +1,89 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonBenchmark - Bytes allocated per upload: LegacyJsonBuilder (before) vs JsonWriter (after)
+ *
+ * Run with -prof gc and compare gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int entityCount;
+
+    private Map<String, Object> payload;
+    private final JsonWriter writer = new JsonWriter(16384);
+
+    @Setup
+    public void setup() {
+        payload = samplePayload(entityCount);
+    }
+
+    @Benchmark
+    public byte[] legacyJsonBuilder() {
+        // The old upload path: String, then UTF-8 bytes for the request body
+        return LegacyJsonBuilder.toJson(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int jsonWriter() {
+        return writer.reset().value(payload).size();
+    }
+
+    /**
+     * Payload shaped like GreysiWebClient.collectAllData
+     */
+    static Map<String, Object> samplePayload(int entityCount) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("botId", "Greysi_123456");
+        data.put("username", "Greysi");
+        data.put("userId", 123456L);
+        data.put("online", true);
+        data.put("running", true);
+        data.put("timestamp", 1760000000000L);
+
+        Map<String, Object> hero = new HashMap<>();
+        hero.put("x", 10234.56);
+        hero.put("y", 6021.3);
+        hero.put("hp", 256000);
+        hero.put("maxHp", 300000);
+        hero.put("hpPercent", 0.8533333333333334);
+        hero.put("shield", 120000);
+        hero.put("maxShield", 150000);
+        hero.put("shieldPercent", 0.8);
+        hero.put("speed", 540);
+        data.put("hero", hero);
+
+        List<Map<String, Object>> entities = new ArrayList<>();
+        for (int i = 0; i < entityCount; i++) {
+            Map<String, Object> e = new HashMap<>();
+            if (i % 3 == 0) {
+                e.put("type", "box");
+            } else {
+                e.put("type", "npc");
+                e.put("name", "-=[ Streuner ]=-");
+                e.put("hp", 1.0);
+            }
+            e.put("x", (i * 379) % 21000 + 0.25);
+            e.put("y", (i * 911) % 13100 + 0.5);
+            entities.add(e);
+        }
+        data.put("entities", entities);
+        return data;
+    }
+}
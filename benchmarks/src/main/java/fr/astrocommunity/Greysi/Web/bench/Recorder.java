@@ -0,0 +1,46 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import java.util.Arrays;
+
+/**
+ * Recorder - Keeps every recorded value of a harness run for exact percentiles
+ */
+final class Recorder {
+    private long[] values = new long[1024];
+    private int count = 0;
+
+    synchronized void record(long value) {
+        if (count == values.length) values = Arrays.copyOf(values, count * 2);
+        values[count++] = value;
+    }
+
+    synchronized void reset() {
+        count = 0;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized long sum() {
+        long sum = 0;
+        for (int i = 0; i < count; i++) sum += values[i];
+        return sum;
+    }
+
+    /**
+     * Value at this percentile (0-100), 0 if nothing was recorded
+     */
+    synchronized long percentile(double p) {
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    String summary(String unit) {
+        return "p50 " + percentile(50) + unit + ", p99 " + percentile(99) + unit
+                + ", max " + percentile(100) + unit + " (n=" + count() + ")";
+    }
+}
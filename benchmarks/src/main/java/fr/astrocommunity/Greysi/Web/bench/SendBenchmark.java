@@ -0,0 +1,54 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import fr.astrocommunity.Greysi.Web.network.WebApiClient;
+import fr.astrocommunity.Greysi.Web.services.SessionTracker;
+import fr.astrocommunity.Greysi.Web.snapshot.BotSnapshot;
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SendBenchmark - WebApiClient.sendData round trips against an in-process HTTP stub
+ *
+ * Measures the client side of an upload (compression, request, response handling) over loopback;
+ * gc.alloc.rate.norm includes the stub server, which runs in the same JVM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SendBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int entityCount;
+
+    @Param({"false", "true"})
+    public boolean compression;
+
+    private StubServer server;
+    private WebApiClient client;
+    private final JsonWriter writer = new JsonWriter(16384);
+
+    @Setup
+    public void setup() throws IOException {
+        server = StubServer.start();
+        client = new WebApiClient(server.getUrl(), "benchmark-key", compression, false);
+
+        FakeScene scene = new FakeScene(entityCount);
+        writer.value(CollectBenchmark.collectAll(scene.collector(), new SessionTracker(scene.stats), new BotSnapshot()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public boolean sendData() throws IOException {
+        return client.sendData(writer);
+    }
+}
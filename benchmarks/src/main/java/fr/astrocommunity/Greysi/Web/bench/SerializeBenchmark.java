@@ -0,0 +1,55 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import fr.astrocommunity.Greysi.Web.services.DataCollector;
+import fr.astrocommunity.Greysi.Web.services.SessionTracker;
+import fr.astrocommunity.Greysi.Web.snapshot.BotSnapshot;
+import fr.astrocommunity.Greysi.Web.utils.BinaryWriter;
+import fr.astrocommunity.Greysi.Web.utils.JsonBuilder;
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SerializeBenchmark - Encoding a collected snapshot: JsonBuilder.toJson, and the reused writers
+ *
+ * Run with -prof gc and compare gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int entityCount;
+
+    private Map<String, Object> payload;
+    private final JsonWriter jsonWriter = new JsonWriter(16384);
+    private final BinaryWriter binaryWriter = new BinaryWriter(16384);
+
+    @Setup
+    public void setup() {
+        FakeScene scene = new FakeScene(entityCount);
+        DataCollector collector = scene.collector();
+        payload = CollectBenchmark.collectAll(collector, new SessionTracker(scene.stats), new BotSnapshot());
+    }
+
+    @Benchmark
+    public String jsonBuilder() {
+        return JsonBuilder.toJson(payload);
+    }
+
+    @Benchmark
+    public int jsonWriter() {
+        return jsonWriter.reset().value(payload).size();
+    }
+
+    @Benchmark
+    public int binaryWriter() {
+        return binaryWriter.reset().value(payload).size();
+    }
+}
@@ -0,0 +1,207 @@
+package fr.astrocommunity.Greysi.Web.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * StandInServer - Local /api/bot/update with the production contract, and fault injection
+ *
+ * Accepts single samples, batches ({"botId","batch":[...]}), replays ({"botId","replay":[...]}),
+ * probes and, once advertised, multiplexed requests ({"multiplex":[...]} answered with
+ * {"bots":{"botId":{...}}}). Every sample with a seq is acked, and queued commands go out in the
+ * answer to the bot's next upload. Bodies may be gzip encoded; JSON only (no Accept-Post).
+ *
+ * Faults: each request waits latency +/- jitter, fails with 503 with errorRate probability,
+ * or stalls past the client timeout with timeoutRate probability.
+ */
+final class StandInServer {
+    static final String THREAD_PREFIX = "StandIn-";
+
+    static {
+        // Small responses otherwise wait for a delayed ACK (see StubServer)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean multiplex;
+    private final long latency;
+    private final long jitter;
+    private final double errorRate;
+    private final double timeoutRate;
+    private final long timeoutDelay;
+
+    private final Map<String, String> commands = new ConcurrentHashMap<>();
+    final Recorder requestBytes = new Recorder(); // As sent, after compression
+    final Recorder sampleAge = new Recorder(); // Capture (payload timestamp) to arrival, ms
+    final AtomicLong samples = new AtomicLong();
+    final AtomicInteger errors = new AtomicInteger();
+    final AtomicInteger timeouts = new AtomicInteger();
+
+    StandInServer(boolean multiplex, long latency, long jitter, double errorRate, double timeoutRate,
+                  long timeoutDelay, int threads) throws IOException {
+        this.multiplex = multiplex;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+        this.timeoutRate = timeoutRate;
+        this.timeoutDelay = timeoutDelay;
+
+        AtomicInteger number = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, THREAD_PREFIX + number.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/api/bot/update", this::handle);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/bot/update";
+    }
+
+    /**
+     * Queue a command for the next answer to this bot (replaces one not yet delivered)
+     */
+    void queueCommand(String botId, String command) {
+        commands.put(botId, command);
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = readBody(exchange);
+            long arrivedAt = System.currentTimeMillis();
+
+            // Faults first, as a slow or failing backend would
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < timeoutRate) {
+                timeouts.incrementAndGet();
+                sleep(timeoutDelay);
+            } else {
+                sleep(latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0));
+            }
+            if (roll >= timeoutRate && roll < timeoutRate + errorRate) {
+                errors.incrementAndGet();
+                respond(exchange, 503, "{\"error\":\"injected\"}");
+                return;
+            }
+
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            JsonObject request;
+            try (Reader reader = new InputStreamReader("gzip".equalsIgnoreCase(encoding)
+                    ? new GZIPInputStream(new ByteArrayInputStream(body))
+                    : new ByteArrayInputStream(body), StandardCharsets.UTF_8)) {
+                request = JsonParser.parseReader(reader).getAsJsonObject();
+            }
+            requestBytes.record(body.length);
+
+            if (request.has("multiplex")) {
+                JsonObject bots = new JsonObject();
+                for (JsonElement part : request.getAsJsonArray("multiplex")) {
+                    JsonObject sample = part.getAsJsonObject();
+                    String botId = sample.get("botId").getAsString();
+                    bots.add(botId, answer(botId, sample, arrivedAt));
+                }
+                JsonObject response = new JsonObject();
+                response.add("bots", bots);
+                respond(exchange, 200, response.toString());
+            } else {
+                String botId = request.has("botId") ? request.get("botId").getAsString() : null;
+                respond(exchange, 200, botId == null ? "{}" : answer(botId, request, arrivedAt).toString());
+            }
+        } catch (Exception e) {
+            respond(exchange, 400, "{\"error\":\"bad request\"}");
+        }
+    }
+
+    /**
+     * Record a bot's samples and build its answer: ack of the newest seq, and its pending command
+     */
+    private JsonObject answer(String botId, JsonObject request, long arrivedAt) {
+        JsonObject response = new JsonObject();
+        if (request.has("probe")) return response;
+
+        long[] newestSeq = {-1};
+        JsonArray parts = request.has("batch") ? request.getAsJsonArray("batch")
+                : request.has("replay") ? request.getAsJsonArray("replay") : null;
+        if (parts == null) {
+            record(request, arrivedAt, newestSeq);
+        } else {
+            for (JsonElement part : parts) record(part.getAsJsonObject(), arrivedAt, newestSeq);
+        }
+
+        if (newestSeq[0] >= 0) response.addProperty("ack", newestSeq[0]);
+        String command = commands.remove(botId);
+        if (command != null) response.addProperty("command", command);
+        return response;
+    }
+
+    private void record(JsonObject sample, long arrivedAt, long[] newestSeq) {
+        samples.incrementAndGet();
+        if (sample.has("seq")) newestSeq[0] = Math.max(newestSeq[0], sample.get("seq").getAsLong());
+        if (sample.has("timestamp")) sampleAge.record(arrivedAt - sample.get("timestamp").getAsLong());
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Accept-Encoding", "gzip");
+        if (multiplex) exchange.getResponseHeaders().set("X-Greysi-Multiplex", "1");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fault settings, for reports
+     */
+    String describe() {
+        return "latency " + latency + "+/-" + jitter + " ms, errors " + errorRate * 100 + "%, timeouts "
+                + timeoutRate * 100 + "% (" + timeoutDelay + " ms), multiplex " + multiplex;
+    }
+}
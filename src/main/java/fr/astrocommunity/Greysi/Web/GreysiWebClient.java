@@ -6,36 +6,57 @@ import com.github.manolo8.darkbot.extensions.features.Feature;
 import eu.darkbot.api.config.ConfigSetting;
 import eu.darkbot.api.config.annotations.Configuration;
 import eu.darkbot.api.config.annotations.Editor;
+import eu.darkbot.api.config.annotations.Number;
 import eu.darkbot.api.config.annotations.Option;
 import eu.darkbot.api.config.util.OptionEditor;
 import eu.darkbot.api.extensions.Configurable;
 import eu.darkbot.api.managers.*;
+import fr.astrocommunity.Greysi.Web.network.CircuitBreaker;
+import fr.astrocommunity.Greysi.Web.network.CommandChannel;
+import fr.astrocommunity.Greysi.Web.network.DeltaEncoder;
+import fr.astrocommunity.Greysi.Web.network.HttpStatusException;
+import fr.astrocommunity.Greysi.Web.network.Outbox;
+import fr.astrocommunity.Greysi.Web.network.Uplink;
 import fr.astrocommunity.Greysi.Web.network.WebApiClient;
+import fr.astrocommunity.Greysi.Web.network.WireFormat;
+import fr.astrocommunity.Greysi.Web.services.CommandRegistry;
+import fr.astrocommunity.Greysi.Web.services.ConfigWriter;
 import fr.astrocommunity.Greysi.Web.services.DataCollector;
 import fr.astrocommunity.Greysi.Web.services.DeathTracker;
+import fr.astrocommunity.Greysi.Web.services.HangarCache;
+import fr.astrocommunity.Greysi.Web.services.HeroTrail;
+import fr.astrocommunity.Greysi.Web.services.SectionTiers;
 import fr.astrocommunity.Greysi.Web.services.SessionTracker;
+import fr.astrocommunity.Greysi.Web.services.UploadScheduler;
+import fr.astrocommunity.Greysi.Web.snapshot.BotSnapshot;
+import fr.astrocommunity.Greysi.Web.snapshot.GalaxySnapshot;
+import fr.astrocommunity.Greysi.Web.snapshot.SnapshotExchange;
+import fr.astrocommunity.Greysi.Web.utils.ClientMetrics;
 import fr.astrocommunity.Greysi.Web.utils.JsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import fr.astrocommunity.Greysi.Web.utils.BinaryWriter;
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
 
 import javax.swing.*;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Greysi Web Client - by Greysi/AstroCommunity
@@ -45,14 +66,26 @@ import java.util.TimerTask;
 @Feature(name = "Greysi Web Client", description = "Send bot data to web server - by Greysi")
 public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.Config> {
 
-    private static final String WEB_SERVER_URL = "https://do.astrocommunity.fr/api/bot/update";
-    private static final int UPDATE_INTERVAL = 2000; // 2 secondes
-    private static GreysiWebClient instance; // Static reference for editor callback
+    private static final String DEFAULT_SERVER_URL = "https://do.astrocommunity.fr/api/bot/update";
+    private static final long CAPTURE_INTERVAL = 1000; // Game thread capture, at most every second
+    private static final long MIN_CAPTURE_INTERVAL = 250;
+    private static final int OUTBOX_BATCH_RECORDS = 64;
+    private static final int OUTBOX_BATCH_BYTES = 512 * 1024;
+    private static final long OUTBOX_DRAIN_BUDGET = 1000; // Per upload, keeps the cadence
+    private static final long UNINSTALL_FLUSH_DEADLINE = 5000;
+    private static final int MAX_IN_FLIGHT = 2; // Uploads waiting for an answer before the next one is held back
+    private static final Set<String> BACKGROUND_SECTIONS = Set.of("performance", "clientMetrics"); // Change every upload regardless
+    private static final int MAX_CAPTURE_SHARE = 100; // Capture may use at most 1% of the game thread
+    private static final long METRICS_INTERVAL = 60_000; // clientMetrics section refresh
+    private static final long ERROR_LOG_INTERVAL = 60_000; // Upload errors are counted, and logged at most this often
+    private static final Set<GreysiWebClient> INSTANCES = ConcurrentHashMap.newKeySet(); // Installed bots, for the editor callback
 
     // Services
     private DataCollector dataCollector;
+    private HangarCache hangarCache;
     private final SessionTracker sessionTracker;
     private final DeathTracker deathTracker;
+    private final HeroTrail heroTrail;
     private final HeroAPI hero;
     private final BotAPI bot;
     private final StatsAPI stats;
@@ -62,13 +95,53 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
     private final ConfigAPI config;
     private final GalaxySpinnerAPI galaxySpinner;
 
+    // Snapshot hand-off: filled on the game tick, serialized and sent by the timer thread
+    private final SnapshotExchange exchange = new SnapshotExchange();
+    private long nextCaptureAt = 0;
+    private int lastShipId = -1;
+    private final SectionTiers tiers = new SectionTiers(); // Game thread
+    private GalaxySnapshot lastGalaxy; // Capture the galaxy section was last collected into
+
     // Network
-    private WebApiClient apiClient;
-    private Timer timer;
+    private volatile WebApiClient apiClient;
+    private volatile Outbox outbox; // Payloads that failed to upload, replayed when the server is back
+    private final Object outboxLock = new Object(); // Opening and closing the outbox
+    private boolean outboxClosed = false; // Guarded by outboxLock - set on uninstall
+    private long outboxMaxBytes = 16 * 1024 * 1024L;
+    private long sampleInterval = UploadScheduler.NORMAL_INTERVAL;
+    private int batchSamples = 1;
+    private long batchWindow = 5000;
+    private int gridCellSize = 0;
+    private final DeltaEncoder deltaEncoder = new DeltaEncoder();
+    private final JsonWriter spoolWriter = new JsonWriter(16384);
+    private final List<byte[]> batchRecords = new ArrayList<>(); // Outbox records of the samples apiClient is gathering (guarded by itself)
+    private final Object responseLock = new Object();
+    private long lastRequestSeq = 0;
+    private long lastResponseSeq = 0; // Newest request whose response was applied (guarded by responseLock)
+    private final CircuitBreaker breaker = new CircuitBreaker();
+    private volatile boolean drainPending = false;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private Uplink uplink;
+    private volatile CommandChannel commandChannel; // Subscribed once the botId is known
+    private final JsonWriter jsonWriter = new JsonWriter(16384); // Reused for every upload
+    private final BinaryWriter binaryWriter = new BinaryWriter(16384); // Same, once the server accepts binary
+    private UploadScheduler scheduler;
+    private int lastHeroHealth = -1;
     private String apiKey = null;
-    private String botId;
-    private boolean firstDataSent = false;
-    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private volatile String serverUrl = DEFAULT_SERVER_URL;
+    private boolean deltaUploads = true;
+    private boolean compression = true;
+    private boolean binaryFormat = true;
+    private long hangarTtl = 60 * 60_000L;
+    private volatile String botId;
+    private volatile boolean firstDataSent = false;
+    private volatile ConfigWriter configWriter; // Writes configs on the background executor
+    private final CommandRegistry commands = new CommandRegistry(stateDir());
+    private final ClientMetrics metrics = new ClientMetrics();
+    private ClientMetrics.Snapshot metricsSnapshot; // Game thread, refreshed every METRICS_INTERVAL
+    private long nextMetricsAt = 0;
+    private long nextErrorLogAt = 0;
+    private long nextRefusedLogAt = 0; // Guarded by responseLock
 
     public GreysiWebClient(HeroAPI hero, BotAPI bot, StatsAPI stats, EntitiesAPI entities,
                            StarSystemAPI starSystem, GroupAPI group, PetAPI pet, ConfigAPI config,
@@ -85,6 +158,8 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
         // Initialize services (DataCollector will be initialized in install() with Main)
         this.sessionTracker = new SessionTracker(stats);
         this.deathTracker = new DeathTracker(hero, starSystem);
+        this.heroTrail = new HeroTrail(hero, starSystem);
+        registerCommands();
     }
 
     @Configuration("greysi_web.config")
@@ -92,11 +167,48 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
         @Option("API Key")
         @Editor(ApiKeyEditor.class)
         public String API_KEY = "";
+
+        @Option("Server URL")
+        public String SERVER_URL = DEFAULT_SERVER_URL;
+
+        @Option("Delta uploads")
+        public boolean DELTA_UPLOADS = true;
+
+        @Option("Compression")
+        public boolean COMPRESSION = true;
+
+        @Option("Binary uploads")
+        public boolean BINARY_FORMAT = true;
+
+        @Option("Hangar refresh (minutes)")
+        @Number(min = 1, max = 1440)
+        public int HANGAR_TTL_MINUTES = 60;
+
+        @Option("Sample interval (ms)")
+        @Number(min = 250, max = 30000, step = 250)
+        public int SAMPLE_INTERVAL_MS = 2000;
+
+        @Option("Samples per request")
+        @Number(min = 1, max = 60)
+        public int BATCH_SAMPLES = 1;
+
+        @Option("Max batch window (s)")
+        @Number(min = 1, max = 60)
+        public int BATCH_WINDOW_SECONDS = 5;
+
+        @Option("Minimap grid cell (0 = exact)")
+        @Number(min = 0, max = 5000, step = 100)
+        public int GRID_CELL_SIZE = 0;
+
+        @Option("Outbox size (MB)")
+        @Number(min = 1, max = 512)
+        public int OUTBOX_MAX_MB = 16;
     }
 
     public static class ApiKeyEditor extends JPanel implements OptionEditor<String> {
         private final JTextField textField;
         private String currentValue;
+        private String editedKey; // Key of the bot being edited, to find it among the installed ones
 
         public ApiKeyEditor() {
             setLayout(new FlowLayout(FlowLayout.LEFT, 5, 0));
@@ -128,7 +240,11 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
 
                 try {
                     System.out.println("[GreysiWeb] Testing API key...");
-                    boolean isValid = WebApiClient.testApiKey(WEB_SERVER_URL, testKey);
+                    String serverUrl = DEFAULT_SERVER_URL;
+                    for (GreysiWebClient client : INSTANCES) {
+                        if (Objects.equals(client.apiKey, editedKey)) serverUrl = client.serverUrl;
+                    }
+                    boolean isValid = WebApiClient.testApiKey(serverUrl, testKey);
                     System.out.println("[GreysiWeb] Test result: " + (isValid ? "VALID" : "INVALID"));
 
                     // Re-enable button
@@ -142,10 +258,13 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
                             "Succès",
                             JOptionPane.INFORMATION_MESSAGE);
 
-                        // Apply new key immediately without restarting
-                        if (instance != null) {
-                            instance.applyNewApiKey(testKey);
+                        // Apply new key immediately without restarting - only to the bot(s) that used the edited key
+                        for (GreysiWebClient client : INSTANCES) {
+                            if (Objects.equals(client.apiKey, editedKey)) {
+                                client.applyNewApiKey(testKey);
+                            }
                         }
+                        editedKey = testKey;
                     } else {
                         JOptionPane.showMessageDialog(this,
                             "Clé API invalide!\nVérifiez votre clé et réessayez.",
@@ -182,6 +301,7 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
         @Override
         public JComponent getEditorComponent(ConfigSetting<String> apiKey) {
             this.currentValue = apiKey.getValue();
+            this.editedKey = currentValue;
             this.textField.setText(currentValue != null ? currentValue : "");
             return this;
         }
@@ -195,29 +315,59 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
     @Override
     public void setConfig(ConfigSetting<Config> config) {
         this.apiKey = config.getValue().API_KEY;
+        String url = config.getValue().SERVER_URL;
+        if (url == null || url.trim().isEmpty()) url = DEFAULT_SERVER_URL;
+        if (!url.trim().equals(serverUrl)) {
+            this.serverUrl = url.trim();
+            resetClient(); // Re-create for the new server
+            unsubscribeCommands();
+            deltaEncoder.resync(); // The new server has none of our state
+        }
+        this.deltaUploads = config.getValue().DELTA_UPLOADS;
+        this.hangarTtl = config.getValue().HANGAR_TTL_MINUTES * 60_000L;
+        if (hangarCache != null) hangarCache.setTtl(hangarTtl);
+        this.outboxMaxBytes = config.getValue().OUTBOX_MAX_MB * 1024 * 1024L;
+        if (outbox != null) outbox.setMaxBytes(outboxMaxBytes);
+        this.sampleInterval = config.getValue().SAMPLE_INTERVAL_MS;
+        this.batchSamples = config.getValue().BATCH_SAMPLES;
+        this.batchWindow = config.getValue().BATCH_WINDOW_SECONDS * 1000L;
+        if (scheduler != null) scheduler.setNormalInterval(sampleInterval);
+        if (apiClient != null) apiClient.setBatching(batchSamples, batchWindow);
+        this.gridCellSize = config.getValue().GRID_CELL_SIZE;
+        if (dataCollector != null) dataCollector.setGridCellSize(gridCellSize);
+        if (this.compression != config.getValue().COMPRESSION) {
+            this.compression = config.getValue().COMPRESSION;
+            resetClient(); // Re-create with the new compression setting
+        }
+        if (this.binaryFormat != config.getValue().BINARY_FORMAT) {
+            this.binaryFormat = config.getValue().BINARY_FORMAT;
+            resetClient(); // Re-create with the new format setting
+        }
     }
 
     @Override
     public void install(Main main) {
-        instance = this; // Store instance for static access
+        INSTANCES.add(this); // Store instance for static access
+        uplink = Uplink.acquire(); // Threads and connections shared with the other bots of this JVM
+        synchronized (outboxLock) {
+            outboxClosed = false; // Opened once the botId is known
+        }
 
-        // Initialize DataCollector with Main object for hangar access
-        this.dataCollector = new DataCollector(main, hero, bot, stats, entities, starSystem,
+        this.dataCollector = new DataCollector(hero, bot, stats, entities, starSystem,
                                                group, config, galaxySpinner);
+        this.dataCollector.setGridCellSize(gridCellSize);
+        this.hangarCache = new HangarCache(main, hangarTtl, uplink.getBackground());
+        this.configWriter = new ConfigWriter(config, new File(System.getProperty("user.dir")), uplink.getBackground());
 
         System.out.println("==========================================");
         System.out.println("[GreysiWeb] by Greysi/AstroCommunity");
-        System.out.println("[GreysiWeb] Server: " + WEB_SERVER_URL);
+        System.out.println("[GreysiWeb] Server: " + serverUrl);
         System.out.println("[GreysiWeb] Waiting for hero data...");
         System.out.println("==========================================");
 
-        timer = new Timer("GreysiWebTimer", true);
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                sendDataToServer();
-            }
-        }, UPDATE_INTERVAL, UPDATE_INTERVAL);
+        scheduler = new UploadScheduler(uplink.getScheduler(), Uplink.SLOT, this::sendDataToServer);
+        scheduler.setNormalInterval(sampleInterval);
+        scheduler.start();
     }
 
     /**
@@ -227,21 +377,35 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
     void applyNewApiKey(String newKey) {
         System.out.println("[GreysiWeb] Applying new API key...");
         this.apiKey = newKey;
-        this.apiClient = null; // Force re-creation with new key on next sendDataToServer()
+        resetClient(); // Force re-creation with new key on next sendDataToServer()
+        unsubscribeCommands(); // Re-subscribed with the new key on next sendDataToServer()
+        deltaEncoder.resync(); // New key may map to another server-side state
         System.out.println("[GreysiWeb] API key applied, will reconnect on next tick.");
     }
 
     @Override
     public void uninstall() {
-        instance = null; // Clear static reference
+        INSTANCES.remove(this); // Clear static reference
 
-        if (timer != null) {
-            timer.cancel();
-            timer = null;
+        if (scheduler != null) {
+            scheduler.stop();
+            scheduler = null;
+        }
+        unsubscribeCommands();
+        if (hangarCache != null) {
+            hangarCache.shutdown();
+        }
+        if (configWriter != null) {
+            configWriter.shutdown();
+            configWriter = null;
         }
 
-        // Send offline status
-        if (apiClient != null && botId != null) {
+        // Flush what was spooled (with the samples still gathering), then send offline status -
+        // whatever is left stays on disk for next start
+        spoolBatch(apiClient, true);
+        if (apiClient != null && botId != null && breaker.isClosed()) {
+            long deadline = System.currentTimeMillis() + UNINSTALL_FLUSH_DEADLINE;
+            drainOutbox(deadline);
             try {
                 Map<String, Object> data = dataCollector.collectBasicInfo(botId, "", 0);
                 data.put("online", false);
@@ -250,12 +414,84 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
                 // Ignore
             }
         }
+        synchronized (outboxLock) {
+            outboxClosed = true;
+            if (outbox != null) {
+                outbox.close();
+                outbox = null;
+            }
+        }
+        if (uplink != null) {
+            Uplink.release();
+            uplink = null;
+            apiClient = null;
+        }
     }
 
     @Override
     public void tick() {
         // Update death tracker
         deathTracker.tick();
+        long now = System.currentTimeMillis();
+        heroTrail.tick(now);
+        sessionTracker.sample(now);
+        captureSnapshot();
+    }
+
+    @Override
+    public void tickStopped() {
+        long now = System.currentTimeMillis();
+        heroTrail.tick(now);
+        sessionTracker.sample(now);
+        captureSnapshot();
+    }
+
+    /**
+     * Copy a consistent snapshot on the game thread and publish it to the upload worker.
+     * A capture that runs long pushes the next one out, so its cost stays bounded.
+     */
+    private void captureSnapshot() {
+        if (dataCollector == null || apiKey == null || apiKey.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        if (now < nextCaptureAt) return;
+        long start = System.nanoTime();
+
+        try {
+            // Wait until hero data is loaded
+            String username = hero.getEntityInfo().getUsername();
+            long heroId = hero.getId();
+            if (username != null && !username.isEmpty() && heroId != 0) {
+                // Generate botId on first valid data
+                if (botId == null) {
+                    botId = username + "_" + heroId;
+                    System.out.println("[GreysiWeb] Bot ID: " + botId);
+                    System.out.println("[GreysiWeb] Plugin ready!");
+                }
+
+                // Ship change means the hangar list changed too
+                int shipId = hero.getShipId();
+                if (lastShipId != -1 && shipId != lastShipId) {
+                    hangarCache.invalidate();
+                }
+                lastShipId = shipId;
+
+                // Nobody receives the data while the server is down - only keep what is cheap to collect
+                BotSnapshot snapshot = exchange.back();
+                collectAllData(snapshot, username, heroId, !breaker.isClosed());
+                snapshot.capturedAt = now;
+                exchange.publish();
+            }
+        } catch (Exception e) {
+            // Ignore - next capture will retry
+        }
+
+        // Capture at least twice per upload interval so fast uploads see fresh data
+        UploadScheduler uploads = scheduler;
+        long interval = uploads == null ? CAPTURE_INTERVAL
+                : Math.max(MIN_CAPTURE_INTERVAL, Math.min(CAPTURE_INTERVAL, uploads.getInterval() / 2));
+        long costMs = (System.nanoTime() - start) / 1_000_000;
+        nextCaptureAt = now + Math.max(interval, costMs * MAX_CAPTURE_SHARE);
     }
 
     private void sendDataToServer() {
@@ -267,234 +503,568 @@ public class GreysiWebClient implements Behaviour, Configurable<GreysiWebClient.
 
             // Initialize API client if needed
             if (apiClient == null) {
-                apiClient = new WebApiClient(WEB_SERVER_URL, apiKey);
+                apiClient = new WebApiClient(serverUrl, apiKey, compression, binaryFormat);
+                apiClient.setBatching(batchSamples, batchWindow);
+                apiClient.setMaxInFlight(MAX_IN_FLIGHT);
+                apiClient.setUplink(uplink);
+                apiClient.setMetrics(metrics);
             }
+            WebApiClient client = apiClient;
 
-            // Wait until hero data is loaded
-            String username = hero.getEntityInfo().getUsername();
-            long heroId = hero.getId();
-            if (username == null || username.isEmpty() || heroId == 0) {
+            // Commands are pushed as soon as they are issued, whatever the upload cadence
+            if (commandChannel == null && botId != null && uplink != null) {
+                commandChannel = uplink.commands(URI.create(serverUrl), apiKey);
+                commandChannel.subscribe(botId, new File(stateDir(), "commands-" + fileName(botId) + ".pos"),
+                        this::onPushedCommand);
+            }
+
+            // Server still busy with earlier uploads - leave the snapshot for newer captures to replace, and slow down
+            UploadScheduler uploads = scheduler;
+            if (client.isSaturated()) {
+                if (uploads != null) uploads.backOff();
                 return;
             }
 
-            // Generate botId on first valid data
-            if (botId == null) {
-                botId = username + "_" + heroId;
-                System.out.println("[GreysiWeb] Bot ID: " + botId);
-                System.out.println("[GreysiWeb] Plugin ready!");
+            // Latest snapshot captured on the game thread (null until the hero is loaded)
+            BotSnapshot snapshot = exchange.take();
+
+            // Server down - keep the snapshot on disk, and only send a cheap probe once the backoff delay has passed
+            if (!breaker.isClosed()) {
+                if (snapshot != null) spool(snapshot.data);
+                if (breaker.allowRequest() && botId != null) {
+                    client.probe(botId).whenComplete(this::onProbe);
+                }
+                return;
             }
 
-            // Collect all data
-            Map<String, Object> data = collectAllData(username, heroId);
+            if (snapshot == null) {
+                return;
+            }
+            if (snapshot.reduced) {
+                spool(snapshot.data); // Captured during the outage - the next capture is complete again
+                return;
+            }
+            Map<String, Object> data = snapshot.data;
+
+            // Only send what changed since the last acknowledged snapshot
+            long encodeStart = System.nanoTime();
+            Map<String, Object> payload = deltaUploads ? deltaEncoder.encode(data) : data;
+            long deathCursor = snapshot.deathCursor;
+            long trailCursor = snapshot.trailCursor;
+            if (deltaUploads) {
+                long seq = (Long) payload.get("seq");
+                deathTracker.sent(seq, deathCursor);
+                heroTrail.sent(seq, trailCursor);
+            }
+            PayloadWriter writer = client.getWireFormat() == WireFormat.BINARY ? binaryWriter : jsonWriter;
+            writer.reset().value(payload);
+            metrics.serialized(System.nanoTime() - encodeStart, writer.size());
+            byte[] record = spoolRecord(data, payload, writer);
+
+            // Send to server (or add to the current batch) without waiting for the answer
+            long nextSampleAt = System.currentTimeMillis() + (uploads != null ? uploads.getInterval() : 0);
+            CompletableFuture<HttpResponse<CommandRegistry.Message>> response;
+            List<byte[]> sentRecords = null;
+            synchronized (batchRecords) {
+                if (client != apiClient) {
+                    // Reset meanwhile - its batch was already spooled, this sample joins it
+                    Outbox spool = getOutbox();
+                    if (spool != null) appendLater(spool, record);
+                    return;
+                }
+                response = client.sendSample(botId, writer, nextSampleAt, commands::read);
+                batchRecords.add(record);
+                if (response != null) {
+                    // Kept until the answer arrives, to be spooled if the request fails
+                    sentRecords = new ArrayList<>(batchRecords);
+                    batchRecords.clear();
+                }
+            }
+            if (response != null) {
+                long requestSeq = ++lastRequestSeq;
+                // A full payload needs no ack (the server may never send one) - a 200 means it was stored
+                boolean fullPayload = !deltaUploads || payload.containsKey("full");
+                List<byte[]> records = sentRecords;
+                response.whenComplete((answer, error) -> {
+                    if (error != null) spoolFailed(records, error);
+                    boolean stored = error == null && answer.statusCode() == 200;
+                    if (fullPayload && stored) {
+                        deathTracker.confirm(deathCursor);
+                        heroTrail.confirm(trailCursor);
+                    }
+                    onResponse(requestSeq, error == null ? answer.body() : null, error);
+                });
+            }
 
-            // Send to server
-            String response = apiClient.sendData(JsonBuilder.toJson(data));
+            // Adapt the next upload to what the bot is doing
+            int heroHealth = snapshot.hero.hp + snapshot.hero.shield;
+            boolean combat = snapshot.target.present || (lastHeroHealth != -1 && heroHealth < lastHeroHealth);
+            lastHeroHealth = heroHealth;
+            boolean running = Boolean.TRUE.equals(data.get("running"));
+            boolean unchanged = deltaUploads && deltaEncoder.changedOnly(BACKGROUND_SECTIONS);
+            if (uploads != null) uploads.update(combat, running, unchanged);
+
+            // Server reachable - replay what was spooled during an outage (blocking, so off the shared scheduler)
+            if (drainPending && uplink != null && draining.compareAndSet(false, true)) {
+                drainPending = false;
+                try {
+                    uplink.getBackground().execute(() -> {
+                        try {
+                            drainOutbox(System.currentTimeMillis() + OUTBOX_DRAIN_BUDGET);
+                        } finally {
+                            draining.set(false);
+                        }
+                    });
+                } catch (Exception e) {
+                    draining.set(false); // Shutting down
+                }
+            }
+
+        } catch (Exception e) {
+            metrics.error();
+            long now = System.currentTimeMillis();
+            if (!firstDataSent || now >= nextErrorLogAt) {
+                nextErrorLogAt = now + ERROR_LOG_INTERVAL;
+                System.err.println("[GreysiWeb] Error: " + e);
+            }
+        }
+    }
 
+    /**
+     * Upload finished (on an HTTP client thread). Responses can arrive out of order: one older
+     * than a response already applied only confirms its snapshot and runs its commands - its
+     * resync and pacing hint describe a server state that is already outdated.
+     */
+    private void onResponse(long requestSeq, CommandRegistry.Message response, Throwable error) {
+        synchronized (responseLock) {
+            boolean stale = requestSeq < lastResponseSeq;
+            if (error != null) {
+                if (!stale) {
+                    lastResponseSeq = requestSeq;
+                    HttpStatusException status = HttpStatusException.find(error);
+                    if (status != null && !status.isServerBusy()) uploadRefused(status);
+                    else serverFailed(error);
+                }
+                return;
+            }
+
+            if (!stale) {
+                lastResponseSeq = requestSeq;
+                if (breaker.recordSuccess()) {
+                    System.out.println("[GreysiWeb] Server reachable again");
+                }
+            }
             if (!firstDataSent) {
                 System.out.println("[GreysiWeb] First data sent successfully!");
                 firstDataSent = true;
             }
 
             // Handle commands from server
-            handleServerResponse(response);
+            handleServerResponse(response, stale);
+            drainPending = true;
+        }
+    }
 
-        } catch (Exception e) {
-            if (!firstDataSent) {
-                System.err.println("[GreysiWeb] Error: " + e.getMessage());
+    /**
+     * Probe answered (on an HTTP client thread)
+     */
+    private void onProbe(Boolean alive, Throwable error) {
+        if (error == null && Boolean.TRUE.equals(alive)) {
+            if (breaker.recordSuccess()) {
+                System.out.println("[GreysiWeb] Server reachable again");
             }
+            drainPending = true;
+        } else {
+            serverFailed(error);
         }
     }
 
     /**
-     * Collect all bot data
+     * The server refused the upload itself (4xx other than 408/429) - it is up, so the circuit
+     * stays as it is; logged at most once per ERROR_LOG_INTERVAL
      */
-    private Map<String, Object> collectAllData(String username, long heroId) {
-        Map<String, Object> data = dataCollector.collectBasicInfo(botId, username, heroId);
-
-        dataCollector.collectModuleInfo(data);
-        dataCollector.collectHeroData(data);
-        dataCollector.collectStatsData(data, sessionTracker);
-        dataCollector.collectMapData(data);
-        dataCollector.collectConfigData(data);
-        dataCollector.collectPerformanceData(data, sessionTracker);
-        dataCollector.collectEntities(data);
-        dataCollector.collectTargetInfo(data);
-        dataCollector.collectGalaxyInfo(data);
-        dataCollector.collectHangars(data);
-
-        // Add death tracking
-        data.put("deaths", deathTracker.getDeathCount());
-        data.put("deathLog", deathTracker.getDeathLog());
+    private void uploadRefused(HttpStatusException status) {
+        long now = System.currentTimeMillis();
+        if (now >= nextRefusedLogAt) {
+            nextRefusedLogAt = now + ERROR_LOG_INTERVAL;
+            System.err.println("[GreysiWeb] Upload refused (HTTP " + status.getStatusCode() + ")");
+        }
+    }
 
-        return data;
+    /**
+     * Open the circuit, for at least as long as the server asked - logged every time, since the
+     * backoff bounds how often this happens
+     */
+    private void serverFailed(Throwable error) {
+        HttpStatusException status = HttpStatusException.find(error);
+        long delay = breaker.recordFailure(status != null ? status.getRetryAfter() : 0);
+        String reason = "no answer";
+        if (error != null) {
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            reason = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        }
+        System.err.println("[GreysiWeb] Server unreachable (" + reason + "), retrying in " + delay / 1000 + "s");
+        spoolBatch(apiClient, false); // Nothing is sent while the circuit is open
     }
 
     /**
-     * Handle server response (commands)
+     * Command pushed by the server (on the background executor) - parsed and spooled first, then
+     * run ordered with upload responses. False if it failed
      */
-    private void handleServerResponse(String response) {
+    private boolean onPushedCommand(String message) {
         try {
-            if (response == null || response.isEmpty()) return;
-
-            // Parse JSON response
-            JsonObject jsonResponse = JsonParser.parseString(response).getAsJsonObject();
-
-            // Handle simple commands (start/stop/setProfile)
-            if (jsonResponse.get("command") != null) {
-                String command = jsonResponse.get("command").getAsString();
-
-                if (command.equals("start")) {
-                    System.out.println("[GreysiWeb] Command received: START");
-                    bot.setRunning(true);
-                } else if (command.equals("stop")) {
-                    System.out.println("[GreysiWeb] Command received: STOP");
-                    bot.setRunning(false);
-                } else if (command.equals("setProfile")) {
-                    if (jsonResponse.get("profile") != null) {
-                        String profileName = jsonResponse.get("profile").getAsString();
-                        System.out.println("[GreysiWeb] Command received: SET PROFILE to " + profileName);
-                        config.setConfigProfile(profileName);
-                    }
-                }
-            }
-
-            // Handle config write commands (new system)
-            if (jsonResponse.get("configCommands") != null) {
-                JsonArray commands = jsonResponse.getAsJsonArray("configCommands");
-                // Use for-each instead of .size() (old Gson compatibility)
-                for (JsonElement element : commands) {
-                    JsonObject cmd = element.getAsJsonObject();
-                    handleConfigCommand(cmd);
-                }
+            CommandRegistry.Message parsed = commands.parse(message);
+            boolean ran;
+            synchronized (responseLock) {
+                ran = commands.run(parsed);
             }
-
+            flushConfigs();
+            return ran;
         } catch (Exception e) {
             System.err.println("[GreysiWeb] Command error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void unsubscribeCommands() {
+        CommandChannel channel = commandChannel;
+        commandChannel = null;
+        if (channel != null && botId != null) {
+            channel.unsubscribe(botId);
         }
     }
 
     /**
-     * Handle config write command
+     * Outbox for this bot, opened once the botId is known (picks up leftovers from a previous run)
      */
-    private void handleConfigCommand(JsonObject command) {
+    private Outbox getOutbox() {
+        Outbox current = outbox;
+        if (current != null || botId == null) return current;
+        // Upload, response and background threads may all ask first - only one may open it
+        synchronized (outboxLock) {
+            if (outbox == null && !outboxClosed) {
+                outbox = new Outbox(stateDir(), "outbox-" + fileName(botId), outboxMaxBytes);
+            }
+            return outbox;
+        }
+    }
+
+    /**
+     * Where the outbox, the command position, spooled configs and metric dumps are kept
+     */
+    private static File stateDir() {
+        return new File(System.getProperty("user.dir"), "greysi-web");
+    }
+
+    private static String fileName(String botId) {
+        return botId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * Store a full snapshot that could not be uploaded. Encoded here, while the snapshot is ours;
+     * the fsync'd append runs on the background executor, off the shared scheduler.
+     */
+    private void spool(Map<String, Object> data) {
+        Outbox spool = getOutbox();
+        if (spool == null) return;
+        byte[] record;
         try {
-            String type = command.get("type").getAsString();
+            spoolWriter.reset().value(data);
+            record = Arrays.copyOf(spoolWriter.buffer(), spoolWriter.size());
+        } catch (Exception e) {
+            System.err.println("[GreysiWeb] Outbox error: " + e.getMessage());
+            return;
+        }
 
-            if (!type.equals("writeConfig")) {
-                System.err.println("[GreysiWeb] Unknown command type: " + type);
-                return;
-            }
+        appendLater(spool, record);
+    }
 
-            String configName = command.get("configName").getAsString();
-            JsonObject configJson = command.get("configJson").getAsJsonObject();
-            boolean smartUpdate = command.get("smartUpdate") != null && command.get("smartUpdate").getAsBoolean();
+    /**
+     * The sample as the outbox keeps it: the full snapshot in JSON, whatever was sent - a delta
+     * is useless once the server moved or lost its base
+     */
+    private byte[] spoolRecord(Map<String, Object> data, Map<String, Object> payload, PayloadWriter writer) {
+        if (payload == data && writer == jsonWriter) return Arrays.copyOf(writer.buffer(), writer.size());
+        spoolWriter.reset().value(data);
+        return Arrays.copyOf(spoolWriter.buffer(), spoolWriter.size());
+    }
 
-            System.out.println("[GreysiWeb] Config write command received: " + configName);
+    /**
+     * Spool the samples the client was still gathering into a batch, and drop that batch - inline
+     * when the outbox is drained right after, otherwise on the background executor
+     */
+    private void spoolBatch(WebApiClient client, boolean inline) {
+        if (client == null) return;
+        List<byte[]> records;
+        synchronized (batchRecords) {
+            client.dropBatch();
+            records = new ArrayList<>(batchRecords);
+            batchRecords.clear();
+        }
+        Outbox spool = getOutbox();
+        if (spool == null) return;
+        for (byte[] record : records) {
+            if (inline) append(spool, record);
+            else appendLater(spool, record);
+        }
+    }
 
-            // Write config to file
-            boolean success = writeConfig(configName, configJson, smartUpdate);
+    /**
+     * Spool the samples of a request that failed, before anything gathered after them. Not when
+     * the server refused them (4xx other than 408/429) - a replay would be refused the same way.
+     */
+    private void spoolFailed(List<byte[]> records, Throwable error) {
+        HttpStatusException status = HttpStatusException.find(error);
+        if (status != null && !status.isServerBusy()) return;
+        Outbox spool = getOutbox();
+        if (spool == null) return;
+        for (byte[] record : records) appendLater(spool, record);
+    }
 
-            if (success) {
-                System.out.println("[GreysiWeb] Config written successfully: " + configName);
-            } else {
-                System.err.println("[GreysiWeb] Failed to write config: " + configName);
+    /**
+     * Drop the client (re-created on the next upload), keeping what it was still gathering
+     */
+    private void resetClient() {
+        WebApiClient client = apiClient;
+        apiClient = null;
+        spoolBatch(client, false);
+    }
+
+    private void appendLater(Outbox spool, byte[] record) {
+        Uplink link = uplink;
+        try {
+            if (link != null) {
+                link.getBackground().execute(() -> append(spool, record));
+                return;
             }
+        } catch (Exception e) {
+            // Shutting down - append right here
+        }
+        append(spool, record);
+    }
 
+    private static void append(Outbox spool, byte[] record) {
+        try {
+            spool.append(record, record.length);
         } catch (Exception e) {
-            System.err.println("[GreysiWeb] Error handling config command: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("[GreysiWeb] Outbox error: " + e.getMessage());
         }
     }
 
     /**
-     * Write config to appropriate location
+     * Replay spooled payloads in batches until the outbox is empty or the deadline passes.
+     * True if the server accepted at least one batch.
      */
-    private boolean writeConfig(String configName, JsonObject configJson, boolean smartUpdate) {
+    private boolean drainOutbox(long deadline) {
+        Outbox spool = getOutbox();
+        WebApiClient client = apiClient;
+        String id = botId;
+        if (spool == null || client == null) return false;
+
+        boolean accepted = false;
         try {
-            // DarkBot working directory (where config.json and configs/ folder are)
-            File workingDir = new File(System.getProperty("user.dir"));
-            System.out.println("[GreysiWeb] Working directory: " + workingDir.getAbsolutePath());
+            while (!spool.isEmpty() && System.currentTimeMillis() < deadline) {
+                if (!spool.drain(records -> client.sendBatch(id, records), OUTBOX_BATCH_RECORDS, OUTBOX_BATCH_BYTES)) {
+                    break;
+                }
+                accepted = true;
+            }
+        } catch (Exception e) {
+            // Still unreachable - retried after the next successful upload
+        }
+        return accepted;
+    }
 
-            File targetFile;
+    /**
+     * Collect all bot data into a snapshot. A reduced snapshot skips the expensive sections
+     * (entity scan, galaxy, config, backpage hangar call).
+     * Slow-moving sections are only collected when their tier is due, and carried over otherwise.
+     */
+    private void collectAllData(BotSnapshot snapshot, String username, long heroId, boolean reduced) {
+        long now = System.currentTimeMillis();
+        long t = System.nanoTime();
+        Map<String, Object> data = dataCollector.collectBasicInfo(botId, username, heroId);
+        snapshot.data = data;
+        snapshot.reduced = reduced;
+        t = metrics.time(ClientMetrics.Section.BASIC, t);
 
-            // Determine target location
-            if (configName.equals("config")) {
-                // Main config file - write to working directory
-                targetFile = new File(workingDir, "config.json");
+        dataCollector.collectModuleInfo(data);
+        t = metrics.time(ClientMetrics.Section.MODULE, t);
+        dataCollector.collectHeroData(snapshot);
+        t = metrics.time(ClientMetrics.Section.HERO, t);
+        if (tiers.isDue(SectionTiers.Section.STATS, now, 0)) {
+            dataCollector.collectStatsData(data, sessionTracker);
+            tiers.collected(SectionTiers.Section.STATS, now, 0, data);
+            t = metrics.time(ClientMetrics.Section.STATS, t);
+        } else {
+            tiers.carry(SectionTiers.Section.STATS, data);
+        }
+        dataCollector.collectMapData(data);
+        t = metrics.time(ClientMetrics.Section.MAP, t);
+        dataCollector.collectPerformanceData(data, sessionTracker);
+        t = metrics.time(ClientMetrics.Section.PERFORMANCE, t);
+        dataCollector.collectTargetInfo(snapshot);
+        t = metrics.time(ClientMetrics.Section.TARGET, t);
+        if (!reduced) {
+            long configVersion = dataCollector.configVersion();
+            if (tiers.isDue(SectionTiers.Section.CONFIG, now, configVersion)) {
+                dataCollector.collectConfigData(data);
+                tiers.collected(SectionTiers.Section.CONFIG, now, configVersion, data);
+                t = metrics.time(ClientMetrics.Section.CONFIG, t);
             } else {
-                // Profile config - write to configs/ subdirectory
-                File configsDir = new File(workingDir, "configs");
-                if (!configsDir.exists()) {
-                    configsDir.mkdirs();
-                    System.out.println("[GreysiWeb] Created configs directory: " + configsDir.getAbsolutePath());
-                }
-                targetFile = new File(configsDir, configName + ".json");
+                tiers.carry(SectionTiers.Section.CONFIG, data);
             }
 
-            System.out.println("[GreysiWeb] Writing config to: " + targetFile.getAbsolutePath());
+            dataCollector.collectEntities(snapshot);
+            t = metrics.time(ClientMetrics.Section.ENTITIES, t);
 
-            // Smart Update logic - server already determined this is the current profile
-            if (smartUpdate && targetFile.exists() && !configName.equals("config")) {
-                System.out.println("[GreysiWeb] Smart update: using async backup method");
+            // Each snapshot owns its GalaxySnapshot - copy the latest one rather than share it across threads
+            long galaxyVersion = dataCollector.galaxyVersion();
+            if (lastGalaxy == null || tiers.isDue(SectionTiers.Section.GALAXY, now, galaxyVersion)) {
+                dataCollector.collectGalaxyInfo(snapshot);
+                lastGalaxy = snapshot.galaxy;
+                tiers.collected(SectionTiers.Section.GALAXY, now, galaxyVersion, data);
+                t = metrics.time(ClientMetrics.Section.GALAXY, t);
+            } else {
+                snapshot.galaxy.copyFrom(lastGalaxy);
+                if (snapshot.galaxy.present) data.put("galaxy", snapshot.galaxy);
+            }
 
-                // Create backup copy
-                final File backupFile = new File(targetFile.getParent(), configName + "_backup.json");
-                Files.copy(targetFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            // The cache keeps the same map until the ship list changes
+            hangarCache.get(); // Schedules a refresh once the TTL expired
+            long hangarsVersion = hangarCache.getVersion();
+            if (tiers.isDue(SectionTiers.Section.HANGARS, now, hangarsVersion)) {
+                dataCollector.collectHangars(data, hangarCache);
+                tiers.collected(SectionTiers.Section.HANGARS, now, hangarsVersion, data);
+                t = metrics.time(ClientMetrics.Section.HANGARS, t);
+            } else {
+                tiers.carry(SectionTiers.Section.HANGARS, data);
+            }
+        }
 
-                // Switch to backup profile
-                config.setConfigProfile(configName + "_backup");
+        // Add death tracking - only the deaths the server has not acknowledged
+        DeathTracker.DeathLog deathLog = deathTracker.getDeathLog();
+        data.put("deaths", deathTracker.getDeathCount());
+        data.put("deathLog", deathLog);
+        data.put("deathLogFrom", deathLog.getFrom());
+        snapshot.deathCursor = deathLog.getFrom() + deathLog.size();
+        t = metrics.time(ClientMetrics.Section.DEATHS, t);
+
+        // Hero positions since the last acknowledged point, recorded at tick rate
+        HeroTrail.Trail trail = heroTrail.getTrail();
+        data.put("trail", trail);
+        snapshot.trailCursor = trail.getFrom() + trail.size();
+        metrics.time(ClientMetrics.Section.TRAIL, t);
+
+        // Own timings - the same copy until the next refresh, so deltas only carry it once a minute
+        if (metricsSnapshot == null || now >= nextMetricsAt) {
+            metricsSnapshot = metrics.snapshot();
+            nextMetricsAt = now + METRICS_INTERVAL;
+        }
+        data.put("clientMetrics", metricsSnapshot);
+    }
 
-                // Use Timer to delay next steps (avoids Thread.sleep which is blocked)
-                final File finalTargetFile = targetFile;
-                final String finalConfigName = configName;
-                new Timer().schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        try {
-                            // Write new config to original file
-                            writeJsonToFile(configJson, finalTargetFile);
-                            System.out.println("[GreysiWeb] New config written, switching back...");
-
-                            // Switch back to updated config
-                            config.setConfigProfile(finalConfigName);
-
-                            // Delete backup after another delay
-                            new Timer().schedule(new TimerTask() {
-                                @Override
-                                public void run() {
-                                    if (backupFile.delete()) {
-                                        System.out.println("[GreysiWeb] Smart update completed, backup deleted");
-                                    }
-                                }
-                            }, 500);
-                        } catch (Exception e) {
-                            System.err.println("[GreysiWeb] Smart update error: " + e.getMessage());
-                        }
-                    }
-                }, 500);
+    /**
+     * Timers and counters of this bot, cumulative since start
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Write the metrics in Prometheus text format to greysi-web/metrics-<botId>.prom
+     */
+    private void dumpMetrics() throws IOException {
+        String id = botId;
+        if (id == null) return;
+        File dir = stateDir();
+        Files.createDirectories(dir.toPath());
+        Path file = dir.toPath().resolve("metrics-" + fileName(id) + ".prom");
+        Files.write(file, metrics.toPrometheus(id).getBytes(StandardCharsets.UTF_8));
+        System.out.println("[GreysiWeb] Metrics written to " + file);
+    }
 
-                return true; // Async operation started
+    /**
+     * Handle server response (commands). A stale response only confirms its snapshot and runs its commands.
+     */
+    private void handleServerResponse(CommandRegistry.Message response, boolean stale) {
+        if (response == null) return;
+        try {
+            // Delta upload bookkeeping
+            if (!stale && response.getBoolean("resync")) {
+                System.out.println("[GreysiWeb] Server requested full resync");
+                deltaEncoder.resync();
+            } else if (response.get("ack") != null) {
+                long ack = response.getLong("ack", -1);
+                deltaEncoder.acknowledge(ack);
+                deathTracker.acknowledge(ack);
+                heroTrail.acknowledge(ack);
             }
 
-            // Normal write (no smart update needed)
-            writeJsonToFile(configJson, targetFile);
-            System.out.println("[GreysiWeb] Config written successfully");
-            return true;
+            // Server-side pacing hint for the next upload
+            if (!stale && response.get("nextUpdateIn") != null && scheduler != null) {
+                scheduler.setServerHint(response.getLong("nextUpdateIn", 0));
+            }
+        } catch (Exception e) {
+            System.err.println("[GreysiWeb] Response error: " + e.getMessage());
+        }
 
+        // Most responses carry no command
+        if (!response.hasCommands()) return;
+        try {
+            commands.run(response);
+            flushConfigs();
         } catch (Exception e) {
-            System.err.println("[GreysiWeb] Error writing config: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            System.err.println("[GreysiWeb] Command error: " + e.getMessage());
         }
     }
 
     /**
-     * Write JSON object to file with pretty printing (UTF-8 encoding)
+     * Commands the server can send, by type
+     */
+    private void registerCommands() {
+        commands.register("start", command -> {
+            System.out.println("[GreysiWeb] Command received: START");
+            bot.setRunning(true);
+        });
+        commands.register("stop", command -> {
+            System.out.println("[GreysiWeb] Command received: STOP");
+            bot.setRunning(false);
+        });
+        commands.register("setProfile", command -> {
+            String profileName = command.get("profile");
+            if (profileName != null) {
+                System.out.println("[GreysiWeb] Command received: SET PROFILE to " + profileName);
+                config.setConfigProfile(profileName);
+            }
+        });
+        commands.register("resendDeathLog", command -> deathTracker.resend());
+        commands.register("writeConfig", this::handleConfigCommand);
+        commands.register("dumpMetrics", command -> dumpMetrics());
+    }
+
+    /**
+     * Handle config write command - configJson was already streamed to a temp file
      */
-    private void writeJsonToFile(JsonObject json, File file) throws IOException {
-        try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8)) {
-            gson.toJson(json, writer);
+    private void handleConfigCommand(CommandRegistry.Command command) {
+        String configName = command.get("configName");
+        if (configName == null || command.getPayload() == null) {
+            System.err.println("[GreysiWeb] Invalid config command: missing configName or configJson");
+            return;
         }
+        ConfigWriter writer = configWriter;
+        if (writer == null) return; // Not installed
+
+        System.out.println("[GreysiWeb] Config write command received: " + configName);
+        writer.stage(configName, command.takePayload(), command.getBoolean("smartUpdate"));
+    }
+
+    /**
+     * Write the configs staged by the commands just run, in the background
+     */
+    private void flushConfigs() {
+        ConfigWriter writer = configWriter;
+        if (writer != null) writer.flush();
     }
 
 }
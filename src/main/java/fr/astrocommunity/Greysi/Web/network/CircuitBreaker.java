@@ -0,0 +1,94 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * CircuitBreaker - Stop talking to a server that is down, and come back gently
+ *
+ * CLOSED: requests flow. A failure opens the circuit for a delay that doubles with each
+ * consecutive failure (up to MAX_DELAY), randomized by half so a fleet of bots that lost the
+ * same server does not come back in lockstep. OPEN: no requests until the delay has passed,
+ * then HALF_OPEN: a single probe is allowed - success closes the circuit, failure reopens it.
+ */
+public class CircuitBreaker {
+    private static final long BASE_DELAY = 2000;
+    private static final long MAX_DELAY = 5 * 60_000;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final LongSupplier clock; // Current time in ms
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openUntil = 0;
+
+    public CircuitBreaker() {
+        this(System::currentTimeMillis);
+    }
+
+    CircuitBreaker(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * True while requests flow normally
+     */
+    public synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * True if a request may be made now. Once the open delay has passed this returns true
+     * exactly once - that request is the probe.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() < openUntil) return false;
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                return false; // Probe still pending
+        }
+    }
+
+    /**
+     * Request succeeded. True if this closed an open circuit.
+     */
+    public synchronized boolean recordSuccess() {
+        boolean recovered = state != State.CLOSED;
+        state = State.CLOSED;
+        failures = 0;
+        return recovered;
+    }
+
+    /**
+     * Request failed - open (or reopen) the circuit. Returns the delay before the next probe.
+     */
+    public synchronized long recordFailure() {
+        return recordFailure(0);
+    }
+
+    /**
+     * Request failed and the server asked to wait at least minDelay ms (Retry-After, up to MAX_DELAY)
+     */
+    public synchronized long recordFailure(long minDelay) {
+        failures++;
+        long delay = Math.min(MAX_DELAY, BASE_DELAY << Math.min(failures - 1, 20));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        delay = Math.max(delay, Math.min(minDelay, MAX_DELAY));
+        state = State.OPEN;
+        openUntil = clock.getAsLong() + delay;
+        return delay;
+    }
+}
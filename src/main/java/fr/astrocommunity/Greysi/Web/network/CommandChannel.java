@@ -0,0 +1,294 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import fr.astrocommunity.Greysi.Web.utils.JsonBuilder;
+import fr.astrocommunity.Greysi.Web.utils.JsonScan;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * CommandChannel - Persistent WebSocket on which the server pushes commands as soon as they are issued
+ */
+public class CommandChannel implements WebSocket.Listener {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final long PING_INTERVAL = 30_000;
+    private static final long SILENCE_TIMEOUT = 75_000;
+    private static final long MIN_RECONNECT = 1000;
+    private static final long MAX_RECONNECT = 5 * 60_000;
+    private static final String[] ROUTING_KEYS = {"botId", "id"};
+
+    private final URI uri;
+    private final String apiKey;
+    private final ScheduledExecutorService scheduler;
+    private final Executor worker; // Runs the handlers, one message at a time, off the socket's thread
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final StringBuilder partial = new StringBuilder(); // Listener calls never overlap
+
+    private WebSocket socket;
+    private CompletableFuture<?> sending = CompletableFuture.completedFuture(null); // One text send at a time
+    private boolean connecting = false;
+    private boolean closed = false;
+    private boolean everConnected = false;
+    private int failures = 0;
+    private ScheduledFuture<?> keepAlive;
+    private volatile long lastHeard = 0;
+
+    private static final class Subscription {
+        final Predicate<String> handler; // False if the command failed and must not be skipped
+        final File position; // Last command id run, kept across restarts (null: memory only)
+        volatile long lastId = 0;
+
+        Subscription(Predicate<String> handler, File position) {
+            this.handler = handler;
+            this.position = position;
+        }
+    }
+
+    public CommandChannel(URI uri, String apiKey, ScheduledExecutorService scheduler, Executor worker) {
+        this.uri = uri;
+        this.apiKey = apiKey;
+        this.scheduler = scheduler;
+        this.worker = worker;
+    }
+
+    /**
+     * Command endpoint next to the upload endpoint: https://host/api/bot/update -> wss://host/api/bot/commands
+     */
+    public static URI commandUri(URI uploadUri) {
+        String scheme = "http".equalsIgnoreCase(uploadUri.getScheme()) ? "ws" : "wss";
+        String path = uploadUri.getPath();
+        path = path.substring(0, path.lastIndexOf('/') + 1) + "commands";
+        String port = uploadUri.getPort() == -1 ? "" : ":" + uploadUri.getPort();
+        return URI.create(scheme + "://" + uploadUri.getHost() + port + path);
+    }
+
+    /**
+     * Receive this bot's commands (on the worker, in order), after the last one recorded in
+     * position (may be null). The handler returns false if a command failed
+     */
+    public synchronized void subscribe(String botId, File position, Predicate<String> handler) {
+        Subscription subscription = new Subscription(handler, position);
+        subscription.lastId = readPosition(position);
+        Subscription previous = subscriptions.put(botId, subscription);
+        if (previous != null) subscription.lastId = Math.max(subscription.lastId, previous.lastId);
+
+        if (socket != null) {
+            sendSubscribe(socket, botId, subscription.lastId);
+        } else {
+            connect();
+        }
+    }
+
+    /**
+     * Stop receiving a bot's commands - the socket is closed with the last subscription
+     */
+    public synchronized void unsubscribe(String botId) {
+        if (subscriptions.remove(botId) == null) return;
+        if (socket != null) {
+            send(socket, JsonBuilder.toJson(Map.of("unsubscribe", botId)));
+        }
+        if (subscriptions.isEmpty()) close();
+    }
+
+    public synchronized boolean isConnected() {
+        return socket != null;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (keepAlive != null) keepAlive.cancel(false);
+        if (socket != null) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+            socket = null;
+        }
+    }
+
+    private synchronized void connect() {
+        if (closed || connecting || socket != null || subscriptions.isEmpty()) return;
+        connecting = true;
+
+        WebApiClient.http().newWebSocketBuilder()
+                .header("X-API-Key", apiKey)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .buildAsync(uri, this)
+                .whenComplete((webSocket, error) -> connected(webSocket, error));
+    }
+
+    private synchronized void connected(WebSocket webSocket, Throwable error) {
+        connecting = false;
+        if (error != null) {
+            if (!everConnected && failures == 0) {
+                System.out.println("[GreysiWeb] Command channel unavailable, commands arrive with uploads");
+            }
+            reconnectLater();
+            return;
+        }
+        if (closed) {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+            return;
+        }
+
+        socket = webSocket;
+        sending = CompletableFuture.completedFuture(null);
+        failures = 0;
+        lastHeard = System.currentTimeMillis();
+        if (!everConnected) {
+            System.out.println("[GreysiWeb] Command channel connected");
+            everConnected = true;
+        }
+        for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
+            sendSubscribe(webSocket, entry.getKey(), entry.getValue().lastId);
+        }
+        if (keepAlive == null) {
+            keepAlive = scheduler.scheduleWithFixedDelay(this::keepAlive, PING_INTERVAL, PING_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sendSubscribe(WebSocket webSocket, String botId, long after) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("subscribe", botId);
+        message.put("after", after);
+        send(webSocket, JsonBuilder.toJson(message));
+    }
+
+    /**
+     * Queue a text message - the WebSocket refuses a send while the previous one is pending
+     */
+    private synchronized void send(WebSocket webSocket, String text) {
+        sending = sending.handle((r, e) -> null).thenCompose(r -> webSocket.sendText(text, true));
+    }
+
+    /**
+     * Ping, or drop a socket that stayed silent too long (half-open TCP connection)
+     */
+    private synchronized void keepAlive() {
+        if (socket == null) return;
+        if (System.currentTimeMillis() - lastHeard > SILENCE_TIMEOUT) {
+            socket.abort();
+            dropped(socket);
+        } else {
+            socket.sendPing(ByteBuffer.allocate(0));
+        }
+    }
+
+    private synchronized void dropped(WebSocket webSocket) {
+        if (socket != webSocket) return; // Already replaced
+        socket = null;
+        reconnectLater();
+    }
+
+    private void reconnectLater() {
+        if (closed) return;
+        failures++;
+        long delay = Math.min(MAX_RECONNECT, MIN_RECONNECT << Math.min(failures - 1, 20));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        try {
+            scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Shutting down
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        lastHeard = System.currentTimeMillis();
+        partial.append(data);
+        if (last) {
+            String message = partial.toString();
+            partial.setLength(0);
+            try {
+                worker.execute(() -> dispatch(message)); // A slow handler must not hold up the socket
+            } catch (RejectedExecutionException e) {
+                // Shutting down - the server replays it after the saved position
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer message) {
+        lastHeard = System.currentTimeMillis();
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        dropped(webSocket);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        dropped(webSocket);
+    }
+
+    /**
+     * Route a pushed command to its bot, skipping anything already applied (on the worker)
+     */
+    private void dispatch(String message) {
+        try {
+            int[] at = new int[ROUTING_KEYS.length];
+            if (!JsonScan.locate(message, ROUTING_KEYS, at) || at[0] < 0 || at[1] < 0) return;
+            String botId = JsonScan.stringAt(message, at[0]);
+            long id = JsonScan.longAt(message, at[1]);
+            if (botId == null) return;
+
+            Subscription subscription = subscriptions.get(botId);
+            if (subscription == null || id <= subscription.lastId) return;
+            if (!subscription.handler.test(message)) return;
+            subscription.lastId = id;
+            savePosition(subscription.position, id);
+        } catch (Exception e) {
+            System.err.println("[GreysiWeb] Command channel error: " + e.getMessage());
+        }
+    }
+
+    private static long readPosition(File position) {
+        try {
+            if (position == null || !position.exists()) return 0;
+            return Long.parseLong(new String(Files.readAllBytes(position.toPath()), StandardCharsets.US_ASCII).trim());
+        } catch (Exception e) {
+            return 0; // Worst case the server replays what it still has
+        }
+    }
+
+    private static void savePosition(File position, long id) {
+        if (position == null) return;
+        try {
+            File dir = position.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) return;
+            Files.write(position.toPath(), Long.toString(id).getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            // Worst case this command is replayed after a restart
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ContentCodec - Request body compression, negotiated through Content-Encoding
+ *
+ * The server advertises what it can decode with an Accept-Encoding response header
+ * (RFC 7694). ZDICT is a zlib stream primed with a preset dictionary of the
+ * recurring payload fragments (key names, entity types), see greysi-web-v3.dict.
+ * The dictionary is generated from real payloads; whenever the payload gains keys it is
+ * regenerated under the next version, so client and server never disagree on its contents.
+ */
+public enum ContentCodec {
+    IDENTITY("identity"),
+    GZIP("gzip"),
+    ZDICT("x-greysi-zdict");
+
+    private static final int DICTIONARY_VERSION = 3;
+    private static final String DICTIONARY_RESOURCE = "/greysi-web-v" + DICTIONARY_VERSION + ".dict";
+    private static final byte[] DICTIONARY = loadDictionary();
+    private static final String DICTIONARY_ID = dictionaryId();
+
+    private final String token;
+
+    ContentCodec(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Content-Encoding token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Version and Adler-32 of the preset dictionary ("v3-1a2b3c4d", the checksum being the zlib DICTID),
+     * sent so the server can pick it
+     */
+    public static String getDictionaryId() {
+        return DICTIONARY_ID;
+    }
+
+    /**
+     * Compress the first len bytes of a body
+     */
+    public byte[] encode(byte[] body, int len) throws IOException {
+        switch (this) {
+            case GZIP:
+                ByteArrayOutputStream out = new ByteArrayOutputStream(len / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+                    gzip.write(body, 0, len);
+                }
+                return out.toByteArray();
+            case ZDICT:
+                return deflateWithDictionary(body, len);
+            default:
+                return len == body.length ? body : Arrays.copyOf(body, len);
+        }
+    }
+
+    /**
+     * Pick the best codec the server advertised, e.g. from "gzip, x-greysi-zdict"
+     */
+    public static ContentCodec negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) return IDENTITY;
+
+        String accepted = acceptEncoding.toLowerCase(Locale.ROOT);
+        if (DICTIONARY != null && accepted.contains(ZDICT.token)) return ZDICT;
+        if (accepted.contains(GZIP.token)) return GZIP;
+        return IDENTITY;
+    }
+
+    private static byte[] deflateWithDictionary(byte[] body, int len) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(body, 0, len);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(len / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] loadDictionary() {
+        try (InputStream in = ContentCodec.class.getResourceAsStream(DICTIONARY_RESOURCE)) {
+            if (in == null) return null;
+            return in.readAllBytes();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String dictionaryId() {
+        if (DICTIONARY == null) return "";
+        Adler32 adler = new Adler32();
+        adler.update(DICTIONARY);
+        return "v" + DICTIONARY_VERSION + "-" + Long.toHexString(adler.getValue());
+    }
+}
@@ -0,0 +1,186 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DeltaEncoder - Turn full snapshots into deltas against the last snapshot acknowledged by the server
+ */
+public class DeltaEncoder {
+    public static final int MAX_PENDING = 16; // Payloads sent but not yet acknowledged
+    private static final long MAP_MARKER = 0x6d61704d61726b72L;
+    private static final String[] IDENTITY_KEYS = {"botId", "username", "userId", "online", "timestamp"};
+
+    // Fingerprints (dotted path -> hash) of snapshots sent but not yet acknowledged
+    private final Map<Long, Map<String, Long>> pending = new LinkedHashMap<Long, Map<String, Long>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Map<String, Long>> eldest) {
+            return size() > MAX_PENDING;
+        }
+    };
+
+    private final JsonWriter scratch = new JsonWriter(1024);
+    private final Set<String> lastChanged = new HashSet<>();
+    private Map<String, Long> base = null;
+    private long baseSeq = 0;
+    private long nextSeq = 1;
+
+    /**
+     * Encode a snapshot as a delta against the acknowledged base, or as a full payload if there is none
+     */
+    public synchronized Map<String, Object> encode(Map<String, Object> snapshot) {
+        long seq = nextSeq++;
+        Map<String, Long> fingerprints = new HashMap<>();
+        Map<String, Object> payload;
+
+        if (base == null) {
+            fingerprint("", snapshot, fingerprints);
+            payload = new HashMap<>(snapshot);
+            payload.put("full", true);
+        } else {
+            payload = diff("", snapshot, fingerprints);
+            for (String key : IDENTITY_KEYS) {
+                if (snapshot.containsKey(key)) payload.put(key, snapshot.get(key));
+            }
+
+            List<String> removed = new ArrayList<>();
+            for (String path : base.keySet()) {
+                if (!fingerprints.containsKey(path) && !isParentReplaced(path, fingerprints)) {
+                    removed.add(path);
+                }
+            }
+            if (!removed.isEmpty()) payload.put("removed", removed);
+            payload.put("baseSeq", baseSeq);
+        }
+
+        lastChanged.clear();
+        lastChanged.addAll(payload.keySet());
+        lastChanged.removeAll(Arrays.asList(IDENTITY_KEYS));
+        lastChanged.remove("full");
+        lastChanged.remove("baseSeq");
+
+        payload.put("seq", seq);
+        pending.put(seq, fingerprints);
+        return payload;
+    }
+
+    /**
+     * True if the last encoded payload only changed top-level sections within the given set
+     */
+    public synchronized boolean changedOnly(Set<String> sections) {
+        return base != null && sections.containsAll(lastChanged);
+    }
+
+    /**
+     * Server applied the payload with this sequence number - it becomes the new base
+     */
+    public synchronized void acknowledge(long seq) {
+        Map<String, Long> acked = pending.get(seq);
+        if (acked == null || seq <= baseSeq) return;
+
+        base = acked;
+        baseSeq = seq;
+        pending.keySet().removeIf(s -> s <= seq);
+    }
+
+    /**
+     * Forget the base so the next payload is a full snapshot
+     */
+    public synchronized void resync() {
+        base = null;
+        baseSeq = 0;
+        pending.clear();
+    }
+
+    /**
+     * Build the delta of a (nested) map against the base, recording new fingerprints on the way
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> diff(String prefix, Map<String, Object> map, Map<String, Long> fingerprints) {
+        Map<String, Object> changes = new HashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            String path = prefix + entry.getKey();
+            Object value = entry.getValue();
+
+            if (value instanceof Map) {
+                Map<String, Object> nested = (Map<String, Object>) value;
+                Long previous = base.get(path);
+                fingerprints.put(path, MAP_MARKER);
+
+                if (previous == null || previous != MAP_MARKER) {
+                    // New (or formerly scalar) section - send it whole
+                    fingerprint(path + ".", nested, fingerprints);
+                    changes.put(entry.getKey(), value);
+                } else {
+                    Map<String, Object> nestedChanges = diff(path + ".", nested, fingerprints);
+                    if (!nestedChanges.isEmpty()) changes.put(entry.getKey(), nestedChanges);
+                }
+            } else {
+                long hash = hash(value);
+                fingerprints.put(path, hash);
+                Long previous = base.get(path);
+                if (previous == null || previous != hash) {
+                    changes.put(entry.getKey(), value);
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Record fingerprints of a (nested) map without diffing
+     */
+    @SuppressWarnings("unchecked")
+    private void fingerprint(String prefix, Map<String, Object> map, Map<String, Long> fingerprints) {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            String path = prefix + entry.getKey();
+            if (entry.getValue() instanceof Map) {
+                fingerprints.put(path, MAP_MARKER);
+                fingerprint(path + ".", (Map<String, Object>) entry.getValue(), fingerprints);
+            } else {
+                fingerprints.put(path, hash(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Only report the topmost removed path ("target", not "target.x"), and nothing below
+     * a section that is no longer a map (it was sent whole)
+     */
+    private boolean isParentReplaced(String path, Map<String, Long> fingerprints) {
+        String parent = parentOf(path);
+        while (!parent.isEmpty()) {
+            Long current = fingerprints.get(parent);
+            if (current == null || current != MAP_MARKER) return true;
+            parent = parentOf(parent);
+        }
+        return false;
+    }
+
+    private static String parentOf(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot == -1 ? "" : path.substring(0, dot);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the UTF-8 JSON representation of a value
+     */
+    private long hash(Object value) {
+        scratch.reset().value(value);
+        byte[] json = scratch.buffer();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, len = scratch.size(); i < len; i++) {
+            hash ^= json[i] & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
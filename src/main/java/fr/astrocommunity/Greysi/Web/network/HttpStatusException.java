@@ -0,0 +1,75 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * HttpStatusException - The server answered, but with a status outside 2xx
+ */
+public class HttpStatusException extends IOException {
+    private final int statusCode;
+    private final long retryAfter;
+
+    public HttpStatusException(int statusCode, long retryAfter) {
+        super("Server answered " + statusCode);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Failure for a response, with the delay from its Retry-After header
+     */
+    static HttpStatusException of(HttpResponse<?> response) {
+        return new HttpStatusException(response.statusCode(),
+                parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null), System.currentTimeMillis()));
+    }
+
+    /**
+     * The status failure somewhere in an error's causes, null if it has none
+     */
+    public static HttpStatusException find(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof HttpStatusException) return (HttpStatusException) t;
+        }
+        return null;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Delay the server asked for before the next request, in ms (0 if none)
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * True if the server is down or throttling (5xx, 408, 429) - any other status refuses the request itself
+     */
+    public boolean isServerBusy() {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    /**
+     * Retry-After as delay-seconds or an HTTP date, in ms from now - 0 if missing or unreadable
+     */
+    static long parseRetryAfter(String value, long now) {
+        if (value == null || value.trim().isEmpty()) return 0;
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // Not delay-seconds - try a date
+        }
+        try {
+            long at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - now);
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+}
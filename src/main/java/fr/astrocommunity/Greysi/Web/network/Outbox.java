@@ -0,0 +1,267 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Outbox - Bounded, append-only spool of payloads that could not be uploaded
+ *
+ * Records ([length][crc32][bytes]) are appended to numbered segment files. Draining reads
+ * from the oldest segment and deletes it once fully sent; the read position is persisted
+ * so a restart resumes where it stopped. When the spool exceeds its cap, the oldest
+ * segment is dropped. A torn or corrupt tail (crash mid-write) ends its segment.
+ * Draining holds no lock while the batch is on the network, so appends never wait for the server.
+ */
+public class Outbox {
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Upload one batch of records, true if the server accepted it
+     */
+    public interface BatchSender {
+        boolean send(List<byte[]> records) throws IOException;
+    }
+
+    private final File dir;
+    private final String name;
+    private final File positionFile;
+    private final Deque<Long> segments = new ArrayDeque<>();
+    private final Object drainLock = new Object(); // One drain at a time, without blocking appends
+    private long maxBytes;
+
+    private FileChannel writer;
+    private long writerSegment = -1;
+    private long readOffset = 0;
+    private boolean closed = false; // Late appends still land on disk, without keeping a file open
+
+    public Outbox(File dir, String name, long maxBytes) {
+        this.dir = dir;
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.positionFile = new File(dir, name + ".pos");
+        loadSegments();
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized boolean isEmpty() {
+        if (segments.isEmpty()) return true;
+        return segments.size() == 1 && readOffset >= segmentFile(segments.peekFirst()).length();
+    }
+
+    /**
+     * Spool a payload (the first len bytes of buf)
+     */
+    public synchronized void append(byte[] buf, int len) throws IOException {
+        if (writer == null || writer.size() >= SEGMENT_BYTES) {
+            openNextSegment();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf, 0, len);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(len).putInt((int) crc.getValue());
+        header.flip();
+        writer.write(new ByteBuffer[]{header, ByteBuffer.wrap(buf, 0, len)});
+        writer.force(false);
+
+        evict();
+        if (closed) closeWriter();
+    }
+
+    /**
+     * Send the oldest records as one batch (up to maxRecords / maxBatchBytes) and drop them if accepted.
+     * Returns false if nothing was sent (empty, or the sender refused).
+     */
+    public boolean drain(BatchSender sender, int maxRecords, int maxBatchBytes) throws IOException {
+        synchronized (drainLock) {
+            long segment;
+            long end;
+            List<byte[]> records = new ArrayList<>();
+            synchronized (this) {
+                while (true) {
+                    if (segments.isEmpty()) return false;
+                    segment = segments.peekFirst();
+                    end = read(segment, records, maxRecords, maxBatchBytes);
+                    if (!records.isEmpty()) break;
+
+                    // Segment exhausted (or corrupt tail) - drop it unless it is still being written
+                    if (segment == writerSegment && end >= writer.size()) return false;
+                    deleteSegment(segment);
+                }
+            }
+
+            if (!sender.send(records)) return false;
+
+            synchronized (this) {
+                // Evicted while the batch was out - the read position already moved on
+                if (segments.isEmpty() || segments.peekFirst() != segment) return true;
+
+                readOffset = end;
+                if (segment != writerSegment && end >= segmentFile(segment).length()) {
+                    deleteSegment(segment);
+                } else if (segment == writerSegment && end >= writer.size()) {
+                    // Everything sent - start over with a fresh segment on next append
+                    closeWriter();
+                    deleteSegment(segment);
+                }
+                savePosition();
+            }
+            return true;
+        }
+    }
+
+    public synchronized void close() {
+        closed = true;
+        closeWriter();
+    }
+
+    private long read(long segment, List<byte[]> records, int maxRecords, int maxBatchBytes) throws IOException {
+        File file = segmentFile(segment);
+        long offset = readOffset;
+        if (!file.exists()) return offset;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int batchBytes = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+            while (records.size() < maxRecords && offset + HEADER_BYTES <= size) {
+                header.clear();
+                channel.read(header, offset);
+                header.flip();
+                int len = header.getInt();
+                int crc = header.getInt();
+                if (len < 0 || len > MAX_RECORD_BYTES || offset + HEADER_BYTES + len > size) {
+                    return size; // Torn write - nothing readable after this point
+                }
+                if (!records.isEmpty() && batchBytes + len > maxBatchBytes) break;
+
+                ByteBuffer body = ByteBuffer.allocate(len);
+                channel.read(body, offset + HEADER_BYTES);
+                CRC32 check = new CRC32();
+                check.update(body.array(), 0, len);
+                if ((int) check.getValue() != crc) {
+                    return size; // Corrupt record
+                }
+
+                records.add(body.array());
+                batchBytes += len;
+                offset += HEADER_BYTES + len;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Drop the oldest segments while over the disk cap
+     */
+    private void evict() {
+        long total = 0;
+        for (long segment : segments) total += segmentFile(segment).length();
+
+        while (total > maxBytes && segments.size() > 1) {
+            long oldest = segments.peekFirst();
+            long size = segmentFile(oldest).length();
+            deleteSegment(oldest);
+            total -= size;
+            System.err.println("[GreysiWeb] Outbox full, dropped " + size / 1024 + " KB of oldest data");
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        closeWriter();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir.getAbsolutePath());
+        }
+        long next = segments.isEmpty() ? 0 : segments.peekLast() + 1;
+        writer = FileChannel.open(segmentFile(next).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writerSegment = next;
+        segments.addLast(next);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            writer = null;
+            writerSegment = -1;
+        }
+    }
+
+    private void deleteSegment(long segment) {
+        // Only ever the oldest segment - the read position restarts on the next one
+        segments.remove(segment);
+        segmentFile(segment).delete();
+        readOffset = 0;
+        savePosition();
+    }
+
+    private File segmentFile(long segment) {
+        return new File(dir, name + "-" + segment + ".log");
+    }
+
+    /**
+     * Find segments left by a previous run, and where draining stopped
+     */
+    private void loadSegments() {
+        File[] files = dir.listFiles((d, f) -> f.startsWith(name + "-") && f.endsWith(".log"));
+        if (files == null) return;
+
+        long[] numbers = new long[files.length];
+        int count = 0;
+        for (File file : files) {
+            String number = file.getName().substring(name.length() + 1, file.getName().length() - 4);
+            try {
+                numbers[count++] = Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+        numbers = Arrays.copyOf(numbers, count);
+        Arrays.sort(numbers);
+        for (long number : numbers) segments.addLast(number);
+
+        try {
+            if (positionFile.exists() && !segments.isEmpty()) {
+                String[] position = new String(Files.readAllBytes(positionFile.toPath()), StandardCharsets.US_ASCII).trim().split(":");
+                if (Long.parseLong(position[0]) == segments.peekFirst()) {
+                    readOffset = Long.parseLong(position[1]);
+                }
+            }
+        } catch (Exception e) {
+            readOffset = 0; // Worst case some records are sent twice
+        }
+    }
+
+    private void savePosition() {
+        try {
+            if (segments.isEmpty()) {
+                positionFile.delete();
+            } else if (dir.exists()) {
+                Files.write(positionFile.toPath(), (segments.peekFirst() + ":" + readOffset).getBytes(StandardCharsets.US_ASCII));
+            }
+        } catch (IOException e) {
+            // Worst case some records are sent twice
+        }
+    }
+}
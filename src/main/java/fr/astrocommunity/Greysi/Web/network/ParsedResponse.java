@@ -0,0 +1,99 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * ParsedResponse - A response whose body was read from the stream by a ResponseReader
+ *
+ * Status and headers are the raw response's; the body is what the reader returned, null when
+ * the status was not 200, the body was empty or unreadable. With a multiplexed request, each
+ * bot gets the shared status and headers but only its own part of the body.
+ */
+final class ParsedResponse<T> implements HttpResponse<T> {
+    private final HttpResponse<?> raw;
+    private final T body;
+
+    ParsedResponse(HttpResponse<?> raw, T body) {
+        this.raw = raw;
+        this.body = body;
+    }
+
+    /**
+     * Read a 200 body with reader (null just discards it). Blocks until the body arrived -
+     * never call this on an HttpClient thread.
+     */
+    static <T> ParsedResponse<T> read(HttpResponse<InputStream> response, ResponseReader<T> reader) {
+        T body = null;
+        try (InputStream in = response.body()) {
+            if (response.statusCode() == 200 && reader != null) {
+                JsonReader json = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                if (json.peek() != JsonToken.END_DOCUMENT) body = reader.read(json);
+            }
+            discard(in);
+        } catch (IOException | RuntimeException e) {
+            // Empty or unreadable answer - nothing to apply from it
+        }
+        return new ParsedResponse<>(response, body);
+    }
+
+    /**
+     * Read to the end, so the connection can be reused
+     */
+    static void discard(InputStream in) throws IOException {
+        in.transferTo(OutputStream.nullOutputStream());
+    }
+
+    @Override
+    public int statusCode() {
+        return raw.statusCode();
+    }
+
+    @Override
+    public HttpRequest request() {
+        return raw.request();
+    }
+
+    @Override
+    public Optional<HttpResponse<T>> previousResponse() {
+        return Optional.empty();
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        return raw.headers();
+    }
+
+    @Override
+    public T body() {
+        return body;
+    }
+
+    @Override
+    public Optional<SSLSession> sslSession() {
+        return raw.sslSession();
+    }
+
+    @Override
+    public URI uri() {
+        return raw.uri();
+    }
+
+    @Override
+    public HttpClient.Version version() {
+        return raw.version();
+    }
+}
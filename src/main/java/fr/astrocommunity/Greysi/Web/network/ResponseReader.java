@@ -0,0 +1,16 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * ResponseReader - Reads one bot's answer straight from the response stream, without a String or a tree
+ */
+public interface ResponseReader<T> {
+
+    /**
+     * Read exactly one JSON value
+     */
+    T read(JsonReader reader) throws IOException;
+}
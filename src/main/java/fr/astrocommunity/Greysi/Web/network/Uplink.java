@@ -0,0 +1,279 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import fr.astrocommunity.Greysi.Web.utils.ClientMetrics;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uplink - Upload machinery shared by every bot running in this JVM
+ */
+public class Uplink {
+    public static final long SLOT = 250; // Upload tasks start on slot boundaries so bots line up
+    private static final long COALESCE_DELAY = 20;
+    private static final int MAX_COMBINED = 32;
+    private static final String MULTIPLEX_HEADER = "X-Greysi-Multiplex";
+
+    private static Uplink shared;
+    private static int users = 0;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemon("GreysiWebUplink"));
+    private final ExecutorService background = Executors.newSingleThreadExecutor(daemon("GreysiWebBackground"));
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<String, CommandChannel> commandChannels = new ConcurrentHashMap<>();
+
+    /**
+     * Join the shared uplink (created by the first bot)
+     */
+    public static synchronized Uplink acquire() {
+        if (shared == null) shared = new Uplink();
+        users++;
+        return shared;
+    }
+
+    /**
+     * Leave the shared uplink (stopped with the last bot)
+     */
+    public static synchronized void release() {
+        if (users > 0 && --users == 0) {
+            shared.commandChannels.values().forEach(CommandChannel::close);
+            shared.scheduler.shutdownNow();
+            shared.background.shutdownNow();
+            shared = null;
+        }
+    }
+
+    /**
+     * Thread running every bot's upload task - tasks must not block
+     */
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Thread for blocking work (backpage calls, outbox replays)
+     */
+    public ExecutorService getBackground() {
+        return background;
+    }
+
+    /**
+     * Command channel for a server and API key (connects on the first subscription)
+     */
+    public CommandChannel commands(URI uploadUri, String apiKey) {
+        URI uri = CommandChannel.commandUri(uploadUri);
+        return commandChannels.compute(uri + "\n" + apiKey, (k, channel) ->
+                channel == null || channel.isClosed() ? new CommandChannel(uri, apiKey, scheduler, background) : channel);
+    }
+
+    /**
+     * Send one bot's sample, combined with other bots' samples for the same key if the server allows it.
+     * The answer (or this bot's part of it) is read with reader.
+     */
+    <T> CompletableFuture<HttpResponse<T>> submit(URI uri, String apiKey, String botId, byte[] body,
+                                                  String contentType, ContentCodec codec, Duration timeout,
+                                                  ClientMetrics metrics, ResponseReader<T> reader) {
+        Channel channel = channels.computeIfAbsent(uri + "\n" + apiKey + "\n" + contentType,
+                k -> new Channel(uri, apiKey, contentType));
+        if (!channel.multiplex) {
+            return WebApiClient.read(channel.post(body, codec, timeout, metrics), reader);
+        }
+
+        Pending<T> pending = new Pending<>(botId, body, codec, timeout, metrics, reader);
+        synchronized (channel) {
+            channel.pending.add(pending);
+            if (!channel.flushScheduled) {
+                channel.flushScheduled = true;
+                try {
+                    scheduler.schedule(() -> flush(channel), COALESCE_DELAY, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    channel.flushScheduled = false;
+                    channel.pending.remove(pending);
+                    return WebApiClient.read(channel.post(body, codec, timeout, metrics), reader); // Shutting down
+                }
+            }
+        }
+        return pending.future;
+    }
+
+    private void flush(Channel channel) {
+        List<Pending<?>> batch;
+        synchronized (channel) {
+            batch = new ArrayList<>(channel.pending);
+            channel.pending.clear();
+            channel.flushScheduled = false;
+        }
+        for (int from = 0; from < batch.size(); from += MAX_COMBINED) {
+            List<Pending<?>> group = batch.subList(from, Math.min(batch.size(), from + MAX_COMBINED));
+            if (group.size() == 1) {
+                group.get(0).sendAlone(channel);
+            } else {
+                sendCombined(channel, new ArrayList<>(group));
+            }
+        }
+    }
+
+    private void sendCombined(Channel channel, List<Pending<?>> group) {
+        PayloadWriter writer = channel.writer.reset().beginObject().name("multiplex").beginArray();
+        ContentCodec codec = ContentCodec.IDENTITY;
+        for (Pending<?> pending : group) {
+            writer.rawValue(pending.body, 0, pending.body.length);
+            if (pending.codec != ContentCodec.IDENTITY) codec = pending.codec;
+        }
+        writer.endArray().endObject();
+        byte[] body = Arrays.copyOf(writer.buffer(), writer.size());
+
+        channel.post(body, codec, group.get(0).timeout, null).whenCompleteAsync((response, error) -> {
+            if (response != null) {
+                long wire = response.request().bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(-1L);
+                for (Pending<?> pending : group) {
+                    if (pending.metrics != null && wire > 0) pending.metrics.wire(wire * pending.body.length / body.length);
+                }
+            }
+            if (error != null) {
+                for (Pending<?> pending : group) pending.future.completeExceptionally(error);
+                return;
+            }
+
+            // Each bot gets the shared status and headers, but only its own part of the body
+            try {
+                try (InputStream in = response.body()) {
+                    if (response.statusCode() == 200) readParts(in, group);
+                    ParsedResponse.discard(in);
+                } catch (IOException | RuntimeException e) {
+                    // Unreadable answer - the bots read so far keep their part, the others get none
+                }
+                for (Pending<?> pending : group) pending.complete(response);
+            } catch (Throwable t) {
+                // Never leave a bot waiting on an answer that will not come
+                for (Pending<?> pending : group) pending.future.completeExceptionally(t);
+            }
+        }, WebApiClient.readers());
+    }
+
+    /**
+     * Stream {"bots":{"botId":{...}}}, handing each part to its bot's reader - unknown bots are skipped
+     */
+    private static void readParts(InputStream in, List<Pending<?>> group) throws IOException {
+        Map<String, Pending<?>> byBot = new HashMap<>();
+        for (Pending<?> pending : group) byBot.putIfAbsent(pending.botId, pending);
+
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) return;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("bots") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                Pending<?> pending = byBot.remove(reader.nextName());
+                if (pending != null) pending.readPart(reader);
+                else reader.skipValue();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+    }
+
+    private static <T> void forward(CompletableFuture<HttpResponse<T>> from, CompletableFuture<HttpResponse<T>> to) {
+        from.whenComplete((response, error) -> {
+            if (error != null) to.completeExceptionally(error);
+            else to.complete(response);
+        });
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Requests to one server with one API key and one body format
+     */
+    private static final class Channel {
+        final URI uri;
+        final String apiKey;
+        final String contentType;
+        final PayloadWriter writer; // Scheduler thread only
+        final List<Pending<?>> pending = new ArrayList<>();
+        boolean flushScheduled = false;
+        volatile boolean multiplex = false;
+
+        Channel(URI uri, String apiKey, String contentType) {
+            this.uri = uri;
+            this.apiKey = apiKey;
+            this.contentType = contentType;
+            this.writer = WireFormat.of(contentType).newWriter(65536);
+        }
+
+        CompletableFuture<HttpResponse<InputStream>> post(byte[] body, ContentCodec codec, Duration timeout,
+                                                          ClientMetrics metrics) {
+            return WebApiClient.post(uri, apiKey, body, body.length, contentType, codec, timeout, metrics)
+                    .whenComplete((response, error) -> {
+                        if (response != null) {
+                            multiplex = response.headers().firstValue(MULTIPLEX_HEADER).isPresent();
+                        }
+                    });
+        }
+    }
+
+    private static final class Pending<T> {
+        final String botId;
+        final byte[] body;
+        final ContentCodec codec;
+        final Duration timeout;
+        final ClientMetrics metrics;
+        final ResponseReader<T> reader;
+        final CompletableFuture<HttpResponse<T>> future = new CompletableFuture<>();
+        private T part;
+
+        Pending(String botId, byte[] body, ContentCodec codec, Duration timeout, ClientMetrics metrics,
+                ResponseReader<T> reader) {
+            this.botId = botId;
+            this.body = body;
+            this.codec = codec;
+            this.timeout = timeout;
+            this.metrics = metrics;
+            this.reader = reader;
+        }
+
+        void sendAlone(Channel channel) {
+            forward(WebApiClient.read(channel.post(body, codec, timeout, metrics), reader), future);
+        }
+
+        void readPart(JsonReader json) throws IOException {
+            if (reader != null) part = reader.read(json);
+            else json.skipValue();
+        }
+
+        void complete(HttpResponse<?> combined) {
+            future.complete(new ParsedResponse<>(combined, part));
+        }
+    }
+}
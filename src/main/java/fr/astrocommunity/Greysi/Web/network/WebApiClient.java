@@ -1,62 +1,322 @@
 package fr.astrocommunity.Greysi.Web.network;
 
-import java.io.BufferedReader;
+import fr.astrocommunity.Greysi.Web.utils.BinaryReader;
+import fr.astrocommunity.Greysi.Web.utils.ClientMetrics;
+import fr.astrocommunity.Greysi.Web.utils.JsonBuilder;
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * WebApiClient - HTTP client for communicating with web server
  */
 public class WebApiClient {
-    private final String serverUrl;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(3);
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(3);
+    private static final Duration TEST_TIMEOUT = Duration.ofSeconds(5);
+    private static final int MIN_COMPRESS_SIZE = 512;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(Executors.newFixedThreadPool(2, r -> {
+                Thread t = new Thread(r, "GreysiWebHttp");
+                t.setDaemon(true);
+                return t;
+            }))
+            .build();
+
+    private static final ExecutorService READERS = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "GreysiWebResponse");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final URI serverUri;
     private final String apiKey;
 
+    // Sample batching (maxBatchSamples <= 1 sends every sample on its own)
+    private PayloadWriter sampleBatch;
+    private volatile WireFormat batchFormat; // Format of the batch being gathered, null when there is none
+    private int maxBatchSamples = 1;
+    private long batchWindow = 0;
+    private int batchedSamples = 0;
+    private long batchStartedAt = 0;
+    private final boolean compression;
+    private final boolean binary;
+    private volatile ContentCodec codec = ContentCodec.IDENTITY;
+    private volatile WireFormat format = WireFormat.JSON;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private volatile Uplink uplink;
+    private volatile ClientMetrics metrics;
+
     public WebApiClient(String serverUrl, String apiKey) {
-        this.serverUrl = serverUrl;
+        this(serverUrl, apiKey, true);
+    }
+
+    public WebApiClient(String serverUrl, String apiKey, boolean compression) {
+        this(serverUrl, apiKey, compression, true);
+    }
+
+    public WebApiClient(String serverUrl, String apiKey, boolean compression, boolean binary) {
+        this.serverUri = URI.create(serverUrl);
         this.apiKey = apiKey;
+        this.compression = compression;
+        this.binary = binary;
     }
 
     /**
-     * Send data to server and get response
+     * Send data to server, true if it was stored (200). The answer is not read; any status
+     * outside 2xx throws, like a failed request.
      */
-    public String sendData(String jsonData) throws IOException {
-        URL url = new URL(serverUrl);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        try {
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("X-API-Key", apiKey);
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(3000);
-            conn.setReadTimeout(3000);
-
-            // Send request
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonData.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+    public boolean sendData(String jsonData) throws IOException {
+        byte[] body = jsonData.getBytes(StandardCharsets.UTF_8);
+        return await(sendAsync(null, body, body.length, JsonWriter.CONTENT_TYPE, null)).statusCode() == 200;
+    }
 
-            // Read response
-            int code = conn.getResponseCode();
-            if (code == 200) {
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    StringBuilder sb = new StringBuilder();
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        sb.append(line);
-                    }
-                    return sb.toString();
-                }
+    /**
+     * Send an encoded document straight from the writer's buffer
+     */
+    public boolean sendData(PayloadWriter payload) throws IOException {
+        return await(sendAsync(null, payload.buffer(), payload.size(), payload.contentType(), null)).statusCode() == 200;
+    }
+
+    /**
+     * Route samples through the process-wide uplink
+     */
+    public void setUplink(Uplink uplink) {
+        this.uplink = uplink;
+    }
+
+    /**
+     * Record requests made by this client
+     */
+    public void setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Allow at most this many sample requests open at once
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * True while the in-flight limit is reached - the next sample should wait
+     */
+    public boolean isSaturated() {
+        return inFlight.get() >= maxInFlight;
+    }
+
+    /**
+     * Format the next sample should be encoded in - a batch in progress keeps its own
+     */
+    public WireFormat getWireFormat() {
+        WireFormat gathering = batchFormat;
+        return gathering != null ? gathering : format;
+    }
+
+    /**
+     * Gather up to maxSamples samples, or all samples within windowMillis, per request
+     */
+    public synchronized void setBatching(int maxSamples, long windowMillis) {
+        this.maxBatchSamples = Math.max(1, maxSamples);
+        this.batchWindow = windowMillis;
+    }
+
+    /**
+     * Queue one encoded sample. The batch is sent when it is full or when the next sample
+     * (expected at nextSampleAt) would fall outside the window.
+     * Returns the pending response, its body read by reader (null if there was none), if a
+     * request was made; null while still gathering. A status outside 2xx completes it exceptionally.
+     * The sample is copied, so the writer can be reused right away.
+     * A failed request is not retried - the caller spools its samples.
+     */
+    public synchronized <T> CompletableFuture<HttpResponse<T>> sendSample(String botId, PayloadWriter sample,
+                                                                          long nextSampleAt, ResponseReader<T> reader) {
+        if (maxBatchSamples <= 1 && batchedSamples == 0) {
+            return sendAsync(botId, sample.buffer(), sample.size(), sample.contentType(), reader);
+        }
+
+        if (batchedSamples == 0) {
+            if (sampleBatch == null || !sampleBatch.contentType().equals(sample.contentType())) {
+                sampleBatch = WireFormat.of(sample).newWriter(65536);
             }
-            return "";
-        } finally {
-            conn.disconnect();
+            batchStartedAt = System.currentTimeMillis();
+            batchFormat = WireFormat.of(sampleBatch);
+            sampleBatch.reset().beginObject()
+                    .name("botId").value(botId)
+                    .name("batch").beginArray();
+        }
+        sampleBatch.rawValue(sample.buffer(), 0, sample.size());
+        batchedSamples++;
+
+        if (batchedSamples < maxBatchSamples && nextSampleAt - batchStartedAt < batchWindow) {
+            return null;
+        }
+
+        sampleBatch.endArray()
+                .name("sentAt").value(System.currentTimeMillis())
+                .endObject();
+        batchedSamples = 0;
+        batchFormat = null;
+        return sendAsync(botId, sampleBatch.buffer(), sampleBatch.size(), sampleBatch.contentType(), reader);
+    }
+
+    /**
+     * Drop the batch still being gathered - its samples are never sent
+     */
+    public synchronized void dropBatch() {
+        batchedSamples = 0;
+        batchFormat = null;
+    }
+
+    /**
+     * Send spooled payloads as one batch: {"botId":..,"replay":[payload,...]}.
+     * True if the server accepted it. Blocks, but holds no lock while waiting.
+     */
+    public boolean sendBatch(String botId, List<byte[]> payloads) throws IOException {
+        int size = 64;
+        for (byte[] payload : payloads) size += payload.length + 1;
+        JsonWriter batch = new JsonWriter(size);
+        batch.beginObject()
+                .name("botId").value(botId)
+                .name("replay").beginArray();
+        for (byte[] payload : payloads) {
+            batch.rawValue(payload, 0, payload.length);
         }
+        batch.endArray().endObject();
+
+        HttpResponse<Void> response = await(read(post(serverUri, apiKey, batch.buffer(), batch.size(),
+                JsonWriter.CONTENT_TYPE, codec, READ_TIMEOUT, metrics), null));
+        return response.statusCode() == 200;
+    }
+
+    /**
+     * Send the first len bytes of body without blocking. The body is copied first.
+     * A sample (botId set) goes through the uplink when there is one. The answer is read with
+     * reader (null to discard it). Any status outside 2xx fails with an HttpStatusException.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(String botId, byte[] body, int len, String contentType,
+                                                             ResponseReader<T> reader) {
+        byte[] copy = Arrays.copyOf(body, len);
+        ContentCodec used = len >= MIN_COMPRESS_SIZE ? codec : ContentCodec.IDENTITY;
+        Uplink link = uplink;
+        ClientMetrics recorder = metrics;
+        long startedAt = System.nanoTime();
+        inFlight.incrementAndGet();
+
+        return (link != null && botId != null
+                ? link.submit(serverUri, apiKey, botId, copy, contentType, used, READ_TIMEOUT, recorder, reader)
+                : read(post(serverUri, apiKey, copy, len, contentType, used, READ_TIMEOUT, recorder), reader))
+                .thenCompose(response -> {
+                    if (response.statusCode() == 415 && used != ContentCodec.IDENTITY) {
+                        // Server no longer accepts this encoding - fall back until it advertises again
+                        codec = ContentCodec.IDENTITY;
+                        if (recorder != null) recorder.retry();
+                        return read(post(serverUri, apiKey, copy, len, contentType, ContentCodec.IDENTITY,
+                                READ_TIMEOUT, recorder), reader);
+                    }
+                    return CompletableFuture.completedFuture(response);
+                })
+                .thenCompose(response -> {
+                    if (response.statusCode() != 415 || JsonWriter.CONTENT_TYPE.equals(contentType)) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    // Binary no longer accepted - downgrade, and send the same data as JSON
+                    format = WireFormat.JSON;
+                    JsonWriter json = new JsonWriter(len * 2);
+                    try {
+                        BinaryReader.transcode(copy, 0, len, json);
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    if (recorder != null) recorder.retry();
+                    ContentCodec jsonCodec = json.size() >= MIN_COMPRESS_SIZE ? codec : ContentCodec.IDENTITY;
+                    return read(post(serverUri, apiKey, json.buffer(), json.size(), JsonWriter.CONTENT_TYPE, jsonCodec,
+                            READ_TIMEOUT, recorder), reader);
+                })
+                .thenApply(response -> {
+                    if (compression) {
+                        codec = ContentCodec.negotiate(response.headers().firstValue("Accept-Encoding").orElse(null));
+                    }
+                    if (binary) {
+                        format = WireFormat.negotiate(response.headers().firstValue("Accept-Post").orElse(null));
+                    }
+                    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                        throw new CompletionException(HttpStatusException.of(response));
+                    }
+                    return response;
+                })
+                .whenComplete((response, error) -> {
+                    inFlight.decrementAndGet();
+                    if (recorder != null) {
+                        long rtt = System.nanoTime() - startedAt;
+                        if (error == null) recorder.responded(rtt);
+                        else recorder.failed(rtt);
+                    }
+                });
+    }
+
+    /**
+     * The shared HttpClient, for the command channel's WebSocket
+     */
+    static HttpClient http() {
+        return HTTP;
+    }
+
+    /**
+     * Threads that read response bodies, off the HttpClient's own
+     */
+    static Executor readers() {
+        return READERS;
+    }
+
+    /**
+     * Read the answer with reader (null discards it) once it arrives, on a reader thread
+     */
+    static <T> CompletableFuture<HttpResponse<T>> read(CompletableFuture<HttpResponse<InputStream>> response,
+                                                       ResponseReader<T> reader) {
+        return response.thenApplyAsync(r -> ParsedResponse.read(r, reader), READERS);
+    }
+
+    /**
+     * Cheapest possible request to see if the server is back: true on a 2xx answer, any other
+     * status fails with an HttpStatusException (a refused key or throttling is not "back")
+     */
+    public CompletableFuture<Boolean> probe(String botId) {
+        byte[] body = JsonBuilder.toJson(Map.of("botId", botId, "probe", true)).getBytes(StandardCharsets.UTF_8);
+        return read(post(serverUri, apiKey, body, body.length, JsonWriter.CONTENT_TYPE, ContentCodec.IDENTITY,
+                READ_TIMEOUT, null), null)
+                .thenApply(response -> {
+                    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                        throw new CompletionException(HttpStatusException.of(response));
+                    }
+                    return true;
+                });
     }
 
     /**
@@ -64,31 +324,96 @@ public class WebApiClient {
      */
     public static boolean testApiKey(String serverUrl, String apiKey) {
         try {
-            URL url = new URL(serverUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            try {
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setRequestProperty("X-API-Key", apiKey);
-                conn.setDoOutput(true);
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-
-                // Send test request
-                String testData = "{\"botId\":\"test\",\"online\":false}";
-                try (OutputStream os = conn.getOutputStream()) {
-                    byte[] input = testData.getBytes(StandardCharsets.UTF_8);
-                    os.write(input, 0, input.length);
-                }
-
-                int responseCode = conn.getResponseCode();
-                return responseCode == 200;
-            } finally {
-                conn.disconnect();
-            }
+            byte[] testData = "{\"botId\":\"test\",\"online\":false}".getBytes(StandardCharsets.UTF_8);
+            return await(read(post(URI.create(serverUrl), apiKey, testData, testData.length, JsonWriter.CONTENT_TYPE,
+                    ContentCodec.IDENTITY, TEST_TIMEOUT, null), null)).statusCode() == 200;
         } catch (Exception e) {
             System.err.println("[GreysiWeb] Error testing API key: " + e.getMessage());
             return false;
         }
     }
+
+    /**
+     * POST a body on the shared client without blocking.
+     * An HTTP/2 stream the server refused or shut down (REFUSED_STREAM, GOAWAY) is retried once on a
+     * fresh connection, with the same body - so the same "seq": the server must drop a seq it already
+     * stored. Any other failure is final: the request may have been processed.
+     * metrics (may be null) gets the bytes sent and the retry.
+     * The body is left unread - pass the response to read(), which also closes it.
+     */
+    static CompletableFuture<HttpResponse<InputStream>> post(URI uri, String apiKey, byte[] body, int len,
+                                                        String contentType, ContentCodec codec,
+                                                        Duration timeout, ClientMetrics metrics) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", contentType)
+                .header("X-API-Key", apiKey);
+
+        try {
+            if (codec != ContentCodec.IDENTITY) {
+                builder.header("Content-Encoding", codec.getToken());
+                if (codec == ContentCodec.ZDICT) {
+                    builder.header("X-Compression-Dictionary", ContentCodec.getDictionaryId());
+                }
+                body = codec.encode(body, len);
+                len = body.length;
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = builder.POST(HttpRequest.BodyPublishers.ofByteArray(body, 0, len)).build();
+        if (metrics != null) metrics.wire(len);
+        HttpResponse.BodyHandler<InputStream> handler = HttpResponse.BodyHandlers.ofInputStream();
+
+        return HTTP.sendAsync(request, handler)
+                .handle((response, error) -> {
+                    if (error == null) return CompletableFuture.completedFuture(response);
+                    Throwable cause = unwrap(error);
+                    if (!isStaleConnection(cause)) {
+                        return CompletableFuture.<HttpResponse<InputStream>>failedFuture(cause);
+                    }
+                    if (metrics != null) {
+                        metrics.retry();
+                        metrics.wire(request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L));
+                    }
+                    return HTTP.sendAsync(request, handler);
+                })
+                .thenCompose(response -> response);
+    }
+
+    /**
+     * Wait for a request made on behalf of a blocking caller
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * The server refused the HTTP/2 stream (REFUSED_STREAM: not processed) or shut the connection
+     * down (GOAWAY). The HttpClient only reports these as IOException messages.
+     */
+    private static boolean isStaleConnection(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof HttpTimeoutException) return false;
+            String message = t instanceof IOException ? t.getMessage() : null;
+            if (message != null && (message.contains("REFUSED_STREAM") || message.contains("GOAWAY"))) return true;
+        }
+        return false;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
 }
@@ -0,0 +1,54 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import fr.astrocommunity.Greysi.Web.utils.BinaryWriter;
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+import java.util.Locale;
+
+/**
+ * WireFormat - Request body format, negotiated through Content-Type
+ *
+ * The server lists the body types it can decode in an Accept-Post response header.
+ * JSON is always accepted and stays the fallback.
+ */
+public enum WireFormat {
+    JSON(JsonWriter.CONTENT_TYPE),
+    BINARY(BinaryWriter.CONTENT_TYPE);
+
+    private final String contentType;
+
+    WireFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * New writer producing this format
+     */
+    public PayloadWriter newWriter(int initialCapacity) {
+        return this == BINARY ? new BinaryWriter(initialCapacity) : new JsonWriter(initialCapacity);
+    }
+
+    /**
+     * Pick the best format the server advertised, e.g. from "application/json, application/x-greysi-bin"
+     */
+    public static WireFormat negotiate(String acceptPost) {
+        if (acceptPost == null || acceptPost.isEmpty()) return JSON;
+        return acceptPost.toLowerCase(Locale.ROOT).contains(BINARY.contentType) ? BINARY : JSON;
+    }
+
+    /**
+     * Format of what a writer produces
+     */
+    public static WireFormat of(PayloadWriter writer) {
+        return of(writer.contentType());
+    }
+
+    public static WireFormat of(String contentType) {
+        return BINARY.contentType.equals(contentType) ? BINARY : JSON;
+    }
+}
@@ -0,0 +1,334 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CommandRegistry - Server commands parsed straight from the response stream and routed by type
+ *
+ * read() turns one answer into a Message: its top-level scalars (ack, resync, ...) and its commands.
+ * The top-level {"command":"start",...} and each entry of "configCommands" ({"type":"writeConfig",...})
+ * become one Command whose arguments are its scalar fields. A "configJson" document is copied
+ * token by token into a temp file (pretty-printed like Gson) instead of being held as a tree;
+ * the handler gets that file. Config commands run after the top-level command.
+ */
+public class CommandRegistry {
+
+    /**
+     * Runs one type of command
+     */
+    public interface Handler {
+        void handle(Command command) throws Exception;
+    }
+
+    /**
+     * One command and its arguments
+     */
+    public static final class Command {
+        private final String type;
+        private final Map<String, String> args;
+        private File payload;
+
+        Command(String type, Map<String, String> args, File payload) {
+            this.type = type;
+            this.args = args;
+            this.payload = payload;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String get(String name) {
+            return args.get(name);
+        }
+
+        public boolean getBoolean(String name) {
+            return "true".equals(args.get(name));
+        }
+
+        /**
+         * Spooled "configJson" document, deleted after the handler returns unless it was moved or taken
+         */
+        public File getPayload() {
+            return payload;
+        }
+
+        /**
+         * Keep the spooled document past the handler - the caller deletes it
+         */
+        public File takePayload() {
+            File taken = payload;
+            payload = null;
+            return taken;
+        }
+    }
+
+    /**
+     * One parsed answer: top-level scalars, and the commands to run in order
+     */
+    public static final class Message {
+        static final Message EMPTY = new Message(Collections.emptyMap(), Collections.emptyList());
+
+        private final Map<String, String> args;
+        private final List<Command> commands;
+
+        Message(Map<String, String> args, List<Command> commands) {
+            this.args = args;
+            this.commands = commands;
+        }
+
+        public String get(String name) {
+            return args.get(name);
+        }
+
+        public boolean getBoolean(String name) {
+            return "true".equals(args.get(name));
+        }
+
+        /**
+         * Integer argument, defaultValue when absent or not a number
+         */
+        public long getLong(String name, long defaultValue) {
+            String value = args.get(name);
+            if (value == null) return defaultValue;
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                try {
+                    return (long) Double.parseDouble(value);
+                } catch (NumberFormatException e2) {
+                    return defaultValue;
+                }
+            }
+        }
+
+        public boolean hasCommands() {
+            return !commands.isEmpty();
+        }
+    }
+
+    private final Map<String, Handler> handlers = new HashMap<>();
+    private final File spoolDir;
+
+    public CommandRegistry(File spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    public void register(String type, Handler handler) {
+        handlers.put(type, handler);
+    }
+
+    /**
+     * Parse a pushed message, spooling its config documents - run() it afterwards
+     */
+    public Message parse(String message) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(message))) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Read one answer object from the stream, spooling its config documents as they come.
+     * Null if the value is not an object. Nothing is spooled if reading fails.
+     */
+    public Message read(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        // Created on first use - most answers carry no command
+        Map<String, String> args = null;
+        List<Command> commands = null;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("configCommands") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Command configCommand = readCommand(reader);
+                        if (configCommand == null) continue;
+                        if (commands == null) commands = new ArrayList<>();
+                        commands.add(configCommand);
+                    }
+                    reader.endArray();
+                } else {
+                    args = readArgument(reader, name, args);
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            if (commands != null) discard(commands);
+            throw e;
+        }
+        if (args == null && commands == null) return Message.EMPTY;
+        if (args == null) args = Collections.emptyMap();
+
+        // The top-level command runs first
+        if (args.get("command") != null) {
+            if (commands == null) commands = new ArrayList<>(1);
+            commands.add(0, new Command(args.get("command"), args, null));
+        }
+        return new Message(args, commands != null ? commands : Collections.emptyList());
+    }
+
+    /**
+     * Run the commands of an answer in order, then delete the config documents nobody took.
+     * False if a handler failed (unknown types are skipped, not failed)
+     */
+    public boolean run(Message message) {
+        if (message == null) return true;
+        boolean ok = true;
+        try {
+            for (Command command : message.commands) ok &= run(command);
+            return ok;
+        } finally {
+            discard(message.commands);
+        }
+    }
+
+    private static void discard(List<Command> commands) {
+        for (Command command : commands) {
+            if (command.payload != null) command.payload.delete();
+        }
+    }
+
+    private boolean run(Command command) {
+        Handler handler = command.type != null ? handlers.get(command.type) : null;
+        if (handler == null) {
+            System.err.println("[GreysiWeb] Unknown command type: " + command.type);
+            return true;
+        }
+        try {
+            handler.handle(command);
+            return true;
+        } catch (Exception e) {
+            System.err.println("[GreysiWeb] Error handling command " + command.type + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * One "configCommands" entry - its configJson goes to disk as it is read
+     */
+    private Command readCommand(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        Map<String, String> args = null;
+        File payload = null;
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if (name.equals("configJson") && (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY)) {
+                    if (payload != null) payload.delete();
+                    payload = spool(reader);
+                } else {
+                    args = readArgument(reader, name, args);
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            if (payload != null) payload.delete();
+            throw e;
+        }
+        if (args == null) args = Collections.emptyMap();
+        return new Command(args.get("type"), args, payload);
+    }
+
+    /**
+     * Keep scalars as strings, skip anything nested - returns args, created on the first scalar
+     */
+    private static Map<String, String> readArgument(JsonReader reader, String name, Map<String, String> args) throws IOException {
+        String value;
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                value = reader.nextString();
+                break;
+            case BOOLEAN:
+                value = String.valueOf(reader.nextBoolean());
+                break;
+            default:
+                reader.skipValue();
+                return args;
+        }
+        if (args == null) args = new HashMap<>();
+        args.put(name, value);
+        return args;
+    }
+
+    private File spool(JsonReader reader) throws IOException {
+        if (!spoolDir.exists() && !spoolDir.mkdirs()) {
+            throw new IOException("Cannot create " + spoolDir.getAbsolutePath());
+        }
+        File file = File.createTempFile("config-", ".tmp", spoolDir);
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(out)) {
+            // Same output as Gson with pretty printing
+            writer.setIndent("  ");
+            writer.setHtmlSafe(true);
+            writer.setSerializeNulls(false);
+            copy(reader, writer);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+        return file;
+    }
+
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.jsonValue(reader.nextString()); // Keep the number as written
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            default:
+                reader.nextNull();
+                writer.nullValue();
+        }
+    }
+}
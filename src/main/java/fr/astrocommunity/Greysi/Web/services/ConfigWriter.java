@@ -0,0 +1,194 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import eu.darkbot.api.managers.ConfigAPI;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ConfigWriter - Config files written by the server, off the upload thread
+ *
+ * Writes are staged, then flushed to a (shared) background executor. Writes to the same file
+ * that are still waiting are coalesced (the latest wins), a write whose content matches the file
+ * on disk is skipped, and files are replaced by an atomic rename of a synced temp file, so
+ * DarkBot never reads a half-written config. A smart update (the file is the current profile)
+ * switches to a backup profile during the write and back as soon as the new file is on disk.
+ */
+public class ConfigWriter {
+    private final ConfigAPI config;
+    private final File workingDir;
+    private final ExecutorService executor;
+    private final Map<File, Write> staged = new LinkedHashMap<>(); // Target -> latest write (guarded by this)
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    private static final class Write {
+        final String configName;
+        final File target;
+        File source;
+        boolean smartUpdate;
+
+        Write(String configName, File target, File source, boolean smartUpdate) {
+            this.configName = configName;
+            this.target = target;
+            this.source = source;
+            this.smartUpdate = smartUpdate;
+        }
+    }
+
+    public ConfigWriter(ConfigAPI config, File workingDir, ExecutorService executor) {
+        this.config = config;
+        this.workingDir = workingDir;
+        this.executor = executor;
+    }
+
+    /**
+     * Queue a write of source (pretty-printed JSON, now owned by the writer) to a config.
+     * "config" is DarkBot's main config.json, anything else a profile in configs/.
+     */
+    public synchronized void stage(String configName, File source, boolean smartUpdate) {
+        if (closed) {
+            source.delete();
+            return;
+        }
+        File target = configName.equals("config")
+                ? new File(workingDir, "config.json")
+                : new File(new File(workingDir, "configs"), configName + ".json");
+
+        Write previous = staged.get(target);
+        if (previous != null) {
+            previous.source.delete();
+            previous.source = source;
+            previous.smartUpdate |= smartUpdate;
+        } else {
+            staged.put(target, new Write(configName, target, source, smartUpdate));
+        }
+    }
+
+    /**
+     * Write everything staged so far (in the background)
+     */
+    public void flush() {
+        if (closed || !scheduled.compareAndSet(false, true)) return;
+        try {
+            executor.execute(this::drain);
+        } catch (Exception e) {
+            scheduled.set(false); // Executor shut down
+        }
+    }
+
+    /**
+     * Drop staged writes - a write already running completes
+     */
+    public synchronized void shutdown() {
+        closed = true;
+        for (Write write : staged.values()) write.source.delete();
+        staged.clear();
+    }
+
+    private void drain() {
+        // Cleared first: a write staged from now on schedules another drain
+        scheduled.set(false);
+        List<Write> writes;
+        synchronized (this) {
+            writes = new ArrayList<>(staged.values());
+            staged.clear();
+        }
+        for (Write write : writes) {
+            write(write);
+        }
+    }
+
+    private void write(Write write) {
+        String name = write.configName;
+        boolean switched = false;
+        try {
+            File dir = write.target.getParentFile();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir.getAbsolutePath());
+            }
+
+            if (write.target.exists() && sameContent(write.source, write.target)) {
+                System.out.println("[GreysiWeb] Config unchanged, skipped: " + name);
+                return;
+            }
+
+            File backup = null;
+            if (write.smartUpdate && write.target.exists() && !name.equals("config")) {
+                // The profile is in use - move DarkBot to a copy while its file is replaced
+                backup = new File(dir, name + "_backup.json");
+                Files.copy(write.target.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                config.setConfigProfile(name + "_backup");
+                switched = true;
+            }
+
+            replace(write.source, write.target);
+
+            if (switched) {
+                config.setConfigProfile(name);
+                switched = false;
+                if (backup.delete()) {
+                    System.out.println("[GreysiWeb] Smart update completed, backup deleted");
+                }
+            }
+            System.out.println("[GreysiWeb] Config written successfully: " + name);
+
+        } catch (Exception e) {
+            System.err.println("[GreysiWeb] Failed to write config " + name + ": " + e.getMessage());
+        } finally {
+            if (switched) {
+                config.setConfigProfile(name); // Old file is still intact
+            }
+            write.source.delete();
+        }
+    }
+
+    /**
+     * Sync source next to the target, then rename it over the target
+     */
+    private static void replace(File source, File target) throws IOException {
+        File temp = new File(target.getParentFile(), "." + target.getName() + ".tmp");
+        Files.move(source.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean sameContent(File a, File b) throws IOException {
+        return a.length() == b.length() && Arrays.equals(hash(a), hash(b));
+    }
+
+    private static byte[] hash(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+}
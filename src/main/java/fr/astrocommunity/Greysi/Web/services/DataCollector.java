@@ -1,28 +1,19 @@
 package fr.astrocommunity.Greysi.Web.services;
 
-import com.github.manolo8.darkbot.Main;
 import eu.darkbot.api.game.entities.*;
-import eu.darkbot.api.game.galaxy.GalaxyGate;
-import eu.darkbot.api.game.galaxy.GalaxyInfo;
-import eu.darkbot.api.game.galaxy.GateInfo;
 import eu.darkbot.api.game.other.EntityInfo;
 import eu.darkbot.api.managers.*;
+import fr.astrocommunity.Greysi.Web.snapshot.BotSnapshot;
+import fr.astrocommunity.Greysi.Web.snapshot.EntitySnapshot;
 
-import java.io.File;
-import java.io.FileReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 /**
  * DataCollector - Collect all bot data for web transmission
  */
 public class DataCollector {
-    private final Main main;
     private final HeroAPI hero;
     private final BotAPI bot;
     private final StatsAPI stats;
@@ -31,11 +22,11 @@ public class DataCollector {
     private final GroupAPI group;
     private final ConfigAPI config;
     private final GalaxySpinnerAPI galaxySpinner;
+    private volatile int gridCellSize = 0; // 0 = send every entity exactly
 
-    public DataCollector(Main main, HeroAPI hero, BotAPI bot, StatsAPI stats, EntitiesAPI entities,
+    public DataCollector(HeroAPI hero, BotAPI bot, StatsAPI stats, EntitiesAPI entities,
                          StarSystemAPI starSystem, GroupAPI group, ConfigAPI config,
                          GalaxySpinnerAPI galaxySpinner) {
-        this.main = main;
         this.hero = hero;
         this.bot = bot;
         this.stats = stats;
@@ -46,6 +37,13 @@ public class DataCollector {
         this.galaxySpinner = galaxySpinner;
     }
 
+    /**
+     * Aggregate NPCs and boxes into minimap cells of this size (game units), 0 to disable
+     */
+    public void setGridCellSize(int gridCellSize) {
+        this.gridCellSize = gridCellSize;
+    }
+
     /**
      * Collect basic bot info
      */
@@ -77,19 +75,10 @@ public class DataCollector {
     /**
      * Collect hero data
      */
-    public void collectHeroData(Map<String, Object> data) {
+    public void collectHeroData(BotSnapshot snapshot) {
         try {
-            Map<String, Object> h = new HashMap<>();
-            h.put("x", hero.getLocationInfo().getX());
-            h.put("y", hero.getLocationInfo().getY());
-            h.put("hp", hero.getHealth().getHp());
-            h.put("maxHp", hero.getHealth().getMaxHp());
-            h.put("hpPercent", hero.getHealth().hpPercent());
-            h.put("shield", hero.getHealth().getShield());
-            h.put("maxShield", hero.getHealth().getMaxShield());
-            h.put("shieldPercent", hero.getHealth().shieldPercent());
-            h.put("speed", hero.getSpeed());
-            data.put("hero", h);
+            snapshot.hero.capture(hero);
+            snapshot.data.put("hero", snapshot.hero);
         } catch (Exception e) {
             // Ignore
         }
@@ -112,6 +101,9 @@ public class DataCollector {
             // Backend calculates them correctly using session snapshot
             s.put("cargo", stats.getStatValue(eu.darkbot.api.game.stats.Stats.General.CARGO));
             s.put("maxCargo", stats.getStatValue(eu.darkbot.api.game.stats.Stats.General.MAX_CARGO));
+            // Precomputed rolling rates, so the backend needs no time series per bot
+            SessionTracker.Rates rates = sessionTracker.getRates();
+            if (rates != null) s.put("rates", rates);
             data.put("stats", s);
         } catch (Exception e) {
             // Ignore
@@ -148,6 +140,18 @@ public class DataCollector {
         }
     }
 
+    /**
+     * Cheap fingerprint of the config section - current profile and number of profiles
+     */
+    public long configVersion() {
+        try {
+            String profile = config.getCurrentProfile();
+            return (profile == null ? 0 : profile.hashCode()) * 31L + config.getConfigProfiles().size();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
     /**
      * Collect performance data
      */
@@ -165,66 +169,48 @@ public class DataCollector {
     /**
      * Collect entities for minimap
      */
-    public void collectEntities(Map<String, Object> data) {
+    public void collectEntities(BotSnapshot snapshot) {
         try {
-            List<Map<String, Object>> entList = new ArrayList<>();
+            EntitySnapshot table = snapshot.entities;
+            table.clear();
+            Entity target = hero.getTarget();
+            int targetId = target != null ? target.getId() : Integer.MIN_VALUE;
 
             // NPCs
             for (Npc npc : entities.getNpcs()) {
-                Map<String, Object> e = new HashMap<>();
-                e.put("type", "npc");
-                e.put("name", npc.getEntityInfo().getUsername());
-                e.put("x", npc.getLocationInfo().getX());
-                e.put("y", npc.getLocationInfo().getY());
-                e.put("hp", npc.getHealth().hpPercent());
-                entList.add(e);
+                int i = table.add("npc", npc.getLocationInfo().getX(), npc.getLocationInfo().getY());
+                table.setName(i, npc.getEntityInfo().getUsername());
+                table.setHp(i, npc.getHealth().hpPercent());
+                if (npc.getId() == targetId) table.setExact(i);
             }
 
             // Players
             for (Player player : entities.getPlayers()) {
-                Map<String, Object> e = new HashMap<>();
                 EntityInfo info = player.getEntityInfo();
-
-                String playerType = determinePlayerType(player, info);
-
-                e.put("type", playerType);
-                e.put("name", info.getUsername());
-                e.put("clan", info.getClanTag());
-                e.put("x", player.getLocationInfo().getX());
-                e.put("y", player.getLocationInfo().getY());
-                entList.add(e);
+                int i = table.add(determinePlayerType(player, info),
+                        player.getLocationInfo().getX(), player.getLocationInfo().getY());
+                table.setName(i, info.getUsername());
+                table.setClan(i, info.getClanTag());
             }
 
             // Boxes
             for (Box box : entities.getBoxes()) {
-                Map<String, Object> e = new HashMap<>();
-                e.put("type", "box");
-                e.put("x", box.getLocationInfo().getX());
-                e.put("y", box.getLocationInfo().getY());
-                entList.add(e);
+                int i = table.add("box", box.getLocationInfo().getX(), box.getLocationInfo().getY());
+                if (box.getId() == targetId) table.setExact(i);
             }
 
             // Portals
             for (Portal portal : entities.getPortals()) {
-                Map<String, Object> e = new HashMap<>();
-                e.put("type", "portal");
-                e.put("x", portal.getLocationInfo().getX());
-                e.put("y", portal.getLocationInfo().getY());
-                entList.add(e);
+                table.add("portal", portal.getLocationInfo().getX(), portal.getLocationInfo().getY());
             }
 
             // Bases
             for (Station station : entities.getStations()) {
-                Map<String, Object> e = new HashMap<>();
-                e.put("type", "base");
-                e.put("x", station.getLocationInfo().getX());
-                e.put("y", station.getLocationInfo().getY());
-                entList.add(e);
+                table.add("base", station.getLocationInfo().getX(), station.getLocationInfo().getY());
             }
 
             // Battle Stations (CBS)
             for (BattleStation bs : entities.getBattleStations()) {
-                Map<String, Object> e = new HashMap<>();
                 String cbsType = "cbs";
 
                 if (bs instanceof BattleStation.Hull) {
@@ -235,25 +221,25 @@ public class DataCollector {
                     cbsType = "cbs_asteroid";
                 }
 
-                e.put("type", cbsType);
-                e.put("x", bs.getLocationInfo().getX());
-                e.put("y", bs.getLocationInfo().getY());
+                int i = table.add(cbsType, bs.getLocationInfo().getX(), bs.getLocationInfo().getY());
 
                 try {
                     EntityInfo info = bs.getEntityInfo();
                     if (info != null) {
-                        e.put("owner", info.getUsername());
-                        e.put("isOwned", bs.isOwned());
-                        e.put("isEnemy", info.isEnemy());
+                        table.setOwner(i, info.getUsername(), bs.isOwned(), info.isEnemy());
                     }
                 } catch (Exception ex) {
                     // Ignore
                 }
-
-                entList.add(e);
             }
 
-            data.put("entities", entList);
+            int cellSize = gridCellSize;
+            if (cellSize > 0) {
+                snapshot.entityGrid.setCellSize(cellSize);
+                snapshot.data.put("entities", snapshot.entityGrid);
+            } else {
+                snapshot.data.put("entities", table);
+            }
         } catch (Exception e) {
             // Ignore
         }
@@ -284,29 +270,11 @@ public class DataCollector {
     /**
      * Collect target info
      */
-    public void collectTargetInfo(Map<String, Object> data) {
+    public void collectTargetInfo(BotSnapshot snapshot) {
         try {
-            if (hero.getTarget() != null) {
-                Map<String, Object> t = new HashMap<>();
-                t.put("x", hero.getTarget().getLocationInfo().getX());
-                t.put("y", hero.getTarget().getLocationInfo().getY());
-
-                if (hero.getTarget() instanceof Ship) {
-                    Ship ship = (Ship) hero.getTarget();
-                    t.put("name", ship.getEntityInfo().getUsername());
-                    t.put("hp", ship.getHealth().getHp());
-                    t.put("maxHp", ship.getHealth().getMaxHp());
-                    t.put("shield", ship.getHealth().getShield());
-                    t.put("maxShield", ship.getHealth().getMaxShield());
-                } else if (hero.getTarget() instanceof Npc) {
-                    Npc npc = (Npc) hero.getTarget();
-                    t.put("name", npc.getEntityInfo().getUsername());
-                    t.put("hp", npc.getHealth().getHp());
-                    t.put("maxHp", npc.getHealth().getMaxHp());
-                    t.put("shield", npc.getHealth().getShield());
-                    t.put("maxShield", npc.getHealth().getMaxShield());
-                }
-                data.put("target", t);
+            snapshot.target.capture(hero.getTarget());
+            if (snapshot.target.present) {
+                snapshot.data.put("target", snapshot.target);
             }
         } catch (Exception e) {
             // Ignore
@@ -316,42 +284,11 @@ public class DataCollector {
     /**
      * Collect galaxy gates info
      */
-    public void collectGalaxyInfo(Map<String, Object> data) {
+    public void collectGalaxyInfo(BotSnapshot snapshot) {
         try {
-            GalaxyInfo galaxyInfo = galaxySpinner.getGalaxyInfo();
-            if (galaxyInfo != null) {
-                Map<String, Object> galaxy = new HashMap<>();
-                galaxy.put("uridium", galaxyInfo.getUridium());
-                galaxy.put("freeEnergy", galaxyInfo.getFreeEnergy());
-                galaxy.put("energyCost", galaxyInfo.getEnergyCost());
-                galaxy.put("spinSale", galaxyInfo.isSpinSale());
-                galaxy.put("spinSalePercent", galaxyInfo.getSpinSalePercentage());
-                galaxy.put("galaxyGateDay", galaxyInfo.isGalaxyGateDay());
-                galaxy.put("bonusRewardsDay", galaxyInfo.isBonusRewardsDay());
-
-                List<Map<String, Object>> gates = new ArrayList<>();
-                for (GalaxyGate gate : GalaxyGate.values()) {
-                    try {
-                        GateInfo info = galaxyInfo.getGateInfo(gate);
-                        if (info != null) {
-                            Map<String, Object> g = new HashMap<>();
-                            g.put("name", gate.getName());
-                            g.put("id", gate.getId());
-                            g.put("currentParts", info.getCurrentParts());
-                            g.put("totalParts", info.getTotalParts());
-                            g.put("currentWave", info.getCurrentWave());
-                            g.put("totalWave", info.getTotalWave());
-                            g.put("livesLeft", info.getLivesLeft());
-                            g.put("onMap", info.isOnMap());
-                            g.put("completed", info.isCompleted());
-                            gates.add(g);
-                        }
-                    } catch (Exception ex) {
-                        // Ignore
-                    }
-                }
-                galaxy.put("gates", gates);
-                data.put("galaxy", galaxy);
+            snapshot.galaxy.capture(galaxySpinner.getGalaxyInfo());
+            if (snapshot.galaxy.present) {
+                snapshot.data.put("galaxy", snapshot.galaxy);
             }
         } catch (Exception e) {
             // Ignore
@@ -359,79 +296,23 @@ public class DataCollector {
     }
 
     /**
-     * Collect hangars (ships owned by the player)
+     * Cheap fingerprint of the galaxy section - uridium and energy change with every spin
      */
-    public void collectHangars(Map<String, Object> data) {
-        Map<String, Object> hangarsData = new HashMap<>();
-
+    public long galaxyVersion() {
         try {
-            // Access hangar manager via backpage API
-            if (main != null && main.backpage != null && main.backpage.hangarManager != null) {
-                // Force update from backpage
-                main.backpage.hangarManager.updateHangarList();
-
-                var response = main.backpage.hangarManager.getHangarList();
-
-                if (response != null && response.getIsError() == 0) {
-                    var responseData = response.getData();
-                    if (responseData != null) {
-                        var ret = responseData.getRet();
-                        if (ret != null) {
-                            var shipInfos = ret.getShipInfos();
-
-                            Map<String, String> hangarsMap = new HashMap<>();
-
-                            if (shipInfos != null) {
-                                for (var ship : shipInfos) {
-                                    // Only include owned ships (owned > 0)
-                                    if (ship.getOwned() > 0) {
-                                        String shipName = ship.getLootId();  // "ship_phoenix", "ship_goliath", etc.
-                                        String lootId = String.valueOf(ship.getHangarId());
-
-                                        // Normalize ship name (remove "ship_" prefix and capitalize)
-                                        String normalizedName = normalizeShipName(shipName);
-                                        hangarsMap.put(normalizedName, lootId);
-                                    }
-                                }
-                            }
-
-                            hangarsData.put("hangars", hangarsMap);
-                            hangarsData.put("count", hangarsMap.size());
-                        }
-                    }
-                }
-            }
-
+            eu.darkbot.api.game.galaxy.GalaxyInfo info = galaxySpinner.getGalaxyInfo();
+            return info == null ? -1 : ((long) info.getUridium() << 32) ^ info.getFreeEnergy();
         } catch (Exception e) {
-            // Silently ignore errors - hangars will just be empty
+            return 0;
         }
-
-        // Always add hangars to data (even if empty)
-        data.put("hangars", hangarsData.getOrDefault("hangars", new HashMap<>()));
-        data.put("hangarsCount", hangarsData.getOrDefault("count", 0));
     }
 
     /**
-     * Normalize ship name (from "ship_goliath" to "Goliath")
+     * Collect hangars (ships owned by the player) from the background-refreshed cache
      */
-    private String normalizeShipName(String apiShipName) {
-        // Remove 'ship_' prefix
-        String name = apiShipName.replace("ship_", "");
-
-        // Handle hyphenated names (G-Veteran, V-Revenge, etc.)
-        if (name.contains("-")) {
-            String[] parts = name.split("-");
-            StringBuilder result = new StringBuilder();
-            for (int i = 0; i < parts.length; i++) {
-                if (i > 0) result.append("-");
-                String part = parts[i];
-                result.append(part.substring(0, 1).toUpperCase());
-                result.append(part.substring(1).toLowerCase());
-            }
-            return result.toString();
-        }
-
-        // Capitalize first letter
-        return name.substring(0, 1).toUpperCase() + name.substring(1).toLowerCase();
+    public void collectHangars(Map<String, Object> data, HangarCache hangarCache) {
+        Map<String, String> hangars = hangarCache.get();
+        data.put("hangars", hangars);
+        data.put("hangarsCount", hangars.size());
     }
 }
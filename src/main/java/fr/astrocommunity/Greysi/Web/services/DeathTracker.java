@@ -1,21 +1,41 @@
 package fr.astrocommunity.Greysi.Web.services;
 
+import eu.darkbot.api.game.other.GameMap;
 import eu.darkbot.api.managers.HeroAPI;
 import eu.darkbot.api.managers.StarSystemAPI;
+import fr.astrocommunity.Greysi.Web.network.DeltaEncoder;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * DeathTracker - Track player deaths
+ * Written from the game tick, read by the upload worker: all access is synchronized.
+ *
+ * Deaths are kept in a bounded ring (time, map id) numbered from 0 for the session.
+ * Uploads only carry the deaths after the acknowledged cursor; the server learns where
+ * they start from "deathLogFrom". The oldest deaths are overwritten once the ring is full.
  */
 public class DeathTracker {
+    private static final int CAPACITY = 128;
+
     private final HeroAPI hero;
     private final StarSystemAPI starSystem;
     private int deathCount = 0;
-    private List<Map<String, Object>> deathLog = new ArrayList<>();
+    private final long[] times = new long[CAPACITY];
+    private final int[] mapIds = new int[CAPACITY];
+    private final Map<Integer, String> mapNames = new HashMap<>();
+    private long written = 0; // Deaths recorded this session (next death number)
+    private long acked = 0;   // Deaths the server has stored
+
+    // Upload seq -> deaths it covered, until the server acknowledges it
+    private final long[] sentSeqs = new long[DeltaEncoder.MAX_PENDING];
+    private final long[] sentCursors = new long[DeltaEncoder.MAX_PENDING];
+    private int sentNext = 0;
+
     private boolean wasAlive = true;
     private boolean justDied = false;
     private boolean justRespawned = false;
@@ -28,7 +48,7 @@ public class DeathTracker {
     /**
      * Update death tracking - call this every tick
      */
-    public void tick() {
+    public synchronized void tick() {
         try {
             boolean alive = hero.getHealth().getHp() > 0;
             
@@ -56,34 +76,73 @@ public class DeathTracker {
      */
     private void recordDeath() {
         deathCount++;
-        Map<String, Object> death = new HashMap<>();
-        death.put("time", System.currentTimeMillis());
+        int mapId = -1;
         try {
-            death.put("map", starSystem.getCurrentMap().getName());
+            GameMap map = starSystem.getCurrentMap();
+            mapId = map.getId();
+            if (!mapNames.containsKey(mapId)) mapNames.put(mapId, map.getName());
         } catch (Exception e) {
-            death.put("map", "Unknown");
+            // Unknown map
         }
-        deathLog.add(death);
+        int slot = (int) (written % CAPACITY);
+        times[slot] = System.currentTimeMillis();
+        mapIds[slot] = mapId;
+        written++;
     }
 
     /**
      * Get total death count
      */
-    public int getDeathCount() {
+    public synchronized int getDeathCount() {
         return deathCount;
     }
 
     /**
-     * Get death log
+     * Deaths the server has not acknowledged yet (a copy, safe to serialize on another thread)
+     */
+    public synchronized DeathLog getDeathLog() {
+        return copy(Math.max(acked, oldest()));
+    }
+
+    /**
+     * Send the whole history still in the ring with the next upload, e.g. after the server lost it
+     */
+    public synchronized void resend() {
+        acked = oldest();
+    }
+
+    /**
+     * Upload seq carried the deaths up to cursor - applied once the server acknowledges seq
+     */
+    public synchronized void sent(long seq, long cursor) {
+        sentSeqs[sentNext] = seq;
+        sentCursors[sentNext] = cursor;
+        sentNext = (sentNext + 1) % DeltaEncoder.MAX_PENDING;
+    }
+
+    /**
+     * Server acknowledged the upload with this seq (and everything before it)
      */
-    public List<Map<String, Object>> getDeathLog() {
-        return deathLog;
+    public synchronized void acknowledge(long seq) {
+        for (int i = 0; i < DeltaEncoder.MAX_PENDING; i++) {
+            if (sentSeqs[i] != 0 && sentSeqs[i] <= seq) {
+                if (sentSeqs[i] == seq) confirm(sentCursors[i]);
+                sentSeqs[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Server stored every death before cursor
+     */
+    public synchronized void confirm(long cursor) {
+        if (cursor > acked) acked = Math.min(cursor, written);
     }
 
     /**
      * Check if bot just died this tick
      */
-    public boolean hasJustDied() {
+    public synchronized boolean hasJustDied() {
         boolean result = justDied;
         justDied = false; // Reset flag after reading
         return result;
@@ -92,7 +151,7 @@ public class DeathTracker {
     /**
      * Check if bot just respawned this tick
      */
-    public boolean hasJustRespawned() {
+    public synchronized boolean hasJustRespawned() {
         boolean result = justRespawned;
         justRespawned = false; // Reset flag after reading
         return result;
@@ -101,11 +160,73 @@ public class DeathTracker {
     /**
      * Reset death tracking
      */
-    public void reset() {
+    public synchronized void reset() {
         deathCount = 0;
-        deathLog.clear();
+        written = 0;
+        acked = 0;
+        sentNext = 0;
+        Arrays.fill(sentSeqs, 0);
         wasAlive = true;
         justDied = false;
         justRespawned = false;
     }
+
+    private long oldest() {
+        return Math.max(0, written - CAPACITY);
+    }
+
+    private DeathLog copy(long from) {
+        int count = (int) (written - from);
+        long[] t = new long[count];
+        String[] maps = new String[count];
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((from + i) % CAPACITY);
+            t[i] = times[slot];
+            ids[i] = mapIds[slot];
+            maps[i] = mapNames.getOrDefault(ids[i], "Unknown");
+        }
+        return new DeathLog(from, t, ids, maps);
+    }
+
+    /**
+     * A range of deaths, written as [{"time","map","mapId"},...]
+     */
+    public static final class DeathLog implements PayloadWritable {
+        private final long from;
+        private final long[] times;
+        private final int[] mapIds;
+        private final String[] maps;
+
+        DeathLog(long from, long[] times, int[] mapIds, String[] maps) {
+            this.from = from;
+            this.times = times;
+            this.mapIds = mapIds;
+            this.maps = maps;
+        }
+
+        /**
+         * Number of the first death in this range
+         */
+        public long getFrom() {
+            return from;
+        }
+
+        public int size() {
+            return times.length;
+        }
+
+        @Override
+        public void writeTo(PayloadWriter writer) {
+            writer.beginArray();
+            for (int i = 0; i < times.length; i++) {
+                writer.beginObject();
+                writer.name("time").value(times[i]);
+                writer.name("map").value(maps[i]);
+                writer.name("mapId").value(mapIds[i]);
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+    }
 }
@@ -0,0 +1,159 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import com.github.manolo8.darkbot.Main;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HangarCache - Owned ships from the backpage, refreshed in the background once the TTL expires
+ *
+ * Reads never block on the backpage request; they return the last known list.
+ * Refreshes run on a (shared) background executor. A failed refresh, whatever the reason,
+ * is retried after FAILURE_BACKOFF rather than on every read or only once the TTL expires.
+ */
+public class HangarCache {
+    private static final long FAILURE_BACKOFF = 60_000;
+
+    private final Main main;
+    private final ExecutorService executor;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final Map<String, String> normalizedNames = new ConcurrentHashMap<>();
+
+    private volatile Map<String, String> hangars = Collections.emptyMap();
+    private volatile long version = 0; // Bumped whenever a refresh changes the list
+    private volatile long refreshedAt = 0;
+    private volatile long retryAt = 0; // After a failed refresh
+    private volatile long ttlMillis;
+    private volatile boolean closed = false;
+
+    public HangarCache(Main main, long ttlMillis, ExecutorService executor) {
+        this.main = main;
+        this.ttlMillis = ttlMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * Get the cached hangars (normalized ship name -> hangar id), scheduling a refresh if expired.
+     * The returned map is immutable and only replaced when its contents change.
+     */
+    public Map<String, String> get() {
+        long now = System.currentTimeMillis();
+        if (now - refreshedAt >= ttlMillis && now >= retryAt) {
+            refreshAsync();
+        }
+        return hangars;
+    }
+
+    /**
+     * Changes whenever the list does - a cheap way to tell whether it must be sent again
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setTtl(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Force a refresh, e.g. after the hero changed ship
+     */
+    public void invalidate() {
+        refreshedAt = 0;
+        retryAt = 0;
+        refreshAsync();
+    }
+
+    /**
+     * Stop refreshing - the executor is shared, so it keeps running
+     */
+    public void shutdown() {
+        closed = true;
+    }
+
+    private void refreshAsync() {
+        if (closed || !refreshing.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (Exception e) {
+            refreshing.set(false); // Executor shut down
+        }
+    }
+
+    private void refresh() {
+        boolean refreshed = false;
+        try {
+            // Access hangar manager via backpage API
+            if (main == null || main.backpage == null || main.backpage.hangarManager == null) return;
+
+            main.backpage.hangarManager.updateHangarList();
+            var response = main.backpage.hangarManager.getHangarList();
+            if (response == null || response.getIsError() != 0) return;
+
+            var responseData = response.getData();
+            if (responseData == null) return;
+            var ret = responseData.getRet();
+            if (ret == null) return;
+
+            Map<String, String> hangarsMap = new HashMap<>();
+            var shipInfos = ret.getShipInfos();
+            if (shipInfos != null) {
+                for (var ship : shipInfos) {
+                    // Only include owned ships (owned > 0)
+                    if (ship.getOwned() > 0) {
+                        String shipName = ship.getLootId();  // "ship_phoenix", "ship_goliath", etc.
+                        String lootId = String.valueOf(ship.getHangarId());
+                        hangarsMap.put(normalizedNames.computeIfAbsent(shipName, HangarCache::normalizeShipName), lootId);
+                    }
+                }
+            }
+
+            // Same version while nothing changed, so the section is not re-sent
+            if (!hangarsMap.equals(hangars)) {
+                hangars = Collections.unmodifiableMap(hangarsMap);
+                version++; // Refresh thread only
+            }
+            refreshed = true;
+        } catch (Exception e) {
+            // Keep the last known list
+        } finally {
+            if (refreshed) refreshedAt = System.currentTimeMillis();
+            else retryAt = System.currentTimeMillis() + FAILURE_BACKOFF;
+        }
+    }
+
+    /**
+     * Normalize ship name (from "ship_goliath" to "Goliath")
+     */
+    private static String normalizeShipName(String apiShipName) {
+        // Remove 'ship_' prefix
+        String name = apiShipName.replace("ship_", "");
+
+        // Handle hyphenated names (G-Veteran, V-Revenge, etc.)
+        if (name.contains("-")) {
+            String[] parts = name.split("-");
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) result.append("-");
+                String part = parts[i];
+                result.append(part.substring(0, 1).toUpperCase());
+                result.append(part.substring(1).toLowerCase());
+            }
+            return result.toString();
+        }
+
+        // Capitalize first letter
+        return name.substring(0, 1).toUpperCase() + name.substring(1).toLowerCase();
+    }
+}
@@ -0,0 +1,198 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import eu.darkbot.api.managers.HeroAPI;
+import eu.darkbot.api.managers.StarSystemAPI;
+import fr.astrocommunity.Greysi.Web.network.DeltaEncoder;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+import java.util.Arrays;
+
+/**
+ * HeroTrail - Hero positions at tick rate, for a smooth movement path between uploads
+ * Written from the game tick, read by the capture and acknowledged by upload responses: all access is synchronized.
+ *
+ * Points (time, x, y, map id) go into a preallocated primitive ring, numbered from 0 for the
+ * session; a tick where the hero did not move records nothing. Like the death log, uploads
+ * only carry the points after the acknowledged cursor, and the server learns where they start
+ * from "from". The oldest points are overwritten once the ring is full.
+ */
+public class HeroTrail {
+    private static final int CAPACITY = 2048; // ~100 s of constant movement at 20 ticks/s
+
+    private final HeroAPI hero;
+    private final StarSystemAPI starSystem;
+    private final long[] times = new long[CAPACITY];
+    private final int[] xs = new int[CAPACITY];
+    private final int[] ys = new int[CAPACITY];
+    private final int[] mapIds = new int[CAPACITY];
+    private long written = 0; // Points recorded this session (next point number)
+    private long acked = 0;   // Points the server has stored
+    private final StringBuilder encoded = new StringBuilder(1024);
+
+    // Upload seq -> points it covered, until the server acknowledges it
+    private final long[] sentSeqs = new long[DeltaEncoder.MAX_PENDING];
+    private final long[] sentCursors = new long[DeltaEncoder.MAX_PENDING];
+    private int sentNext = 0;
+
+    public HeroTrail(HeroAPI hero, StarSystemAPI starSystem) {
+        this.hero = hero;
+        this.starSystem = starSystem;
+    }
+
+    /**
+     * Record the hero position - call this every tick
+     */
+    public synchronized void tick(long now) {
+        try {
+            int x = (int) hero.getLocationInfo().getX();
+            int y = (int) hero.getLocationInfo().getY();
+            int mapId = starSystem.getCurrentMap().getId();
+
+            if (written > 0) {
+                int last = (int) ((written - 1) % CAPACITY);
+                if (xs[last] == x && ys[last] == y && mapIds[last] == mapId) return;
+            }
+            int slot = (int) (written % CAPACITY);
+            times[slot] = now;
+            xs[slot] = x;
+            ys[slot] = y;
+            mapIds[slot] = mapId;
+            written++;
+        } catch (Exception e) {
+            // Hero not loaded yet
+        }
+    }
+
+    /**
+     * Points the server has not acknowledged yet, already encoded (safe to serialize on another thread)
+     */
+    public synchronized Trail getTrail() {
+        long from = Math.max(acked, oldest());
+        int count = (int) (written - from);
+        if (count == 0) return new Trail(from, 0, 0, "", new int[0]);
+
+        // Map changes as (index, mapId) pairs, the first point included
+        int changes = 0;
+        int[] maps = new int[8];
+        int previousMap = 0;
+
+        encoded.setLength(0);
+        long start = times[(int) (from % CAPACITY)];
+        long t = start, dt = 0;
+        long x = 0, dx = 0;
+        long y = 0, dy = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((from + i) % CAPACITY);
+            if (i == 0 || mapIds[slot] != previousMap) {
+                if (changes * 2 == maps.length) maps = Arrays.copyOf(maps, maps.length * 2);
+                maps[changes * 2] = i;
+                maps[changes * 2 + 1] = mapIds[slot];
+                changes++;
+                previousMap = mapIds[slot];
+            }
+
+            // Delta of delta: constant speed and tick rate encode as zeros, one character each
+            long ndt = times[slot] - t, ndx = xs[slot] - x, ndy = ys[slot] - y;
+            encode(ndt - dt);
+            encode(ndx - dx);
+            encode(ndy - dy);
+            t = times[slot];
+            x = xs[slot];
+            y = ys[slot];
+            dt = ndt;
+            dx = ndx;
+            dy = ndy;
+        }
+        return new Trail(from, count, start, encoded.toString(), Arrays.copyOf(maps, changes * 2));
+    }
+
+    /**
+     * Upload seq carried the points up to cursor - applied once the server acknowledges seq
+     */
+    public synchronized void sent(long seq, long cursor) {
+        sentSeqs[sentNext] = seq;
+        sentCursors[sentNext] = cursor;
+        sentNext = (sentNext + 1) % DeltaEncoder.MAX_PENDING;
+    }
+
+    /**
+     * Server acknowledged the upload with this seq (and everything before it)
+     */
+    public synchronized void acknowledge(long seq) {
+        for (int i = 0; i < DeltaEncoder.MAX_PENDING; i++) {
+            if (sentSeqs[i] != 0 && sentSeqs[i] <= seq) {
+                if (sentSeqs[i] == seq) confirm(sentCursors[i]);
+                sentSeqs[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Server stored every point before cursor
+     */
+    public synchronized void confirm(long cursor) {
+        if (cursor > acked) acked = Math.min(cursor, written);
+    }
+
+    private long oldest() {
+        return Math.max(0, written - CAPACITY);
+    }
+
+    /**
+     * Zigzag varint in polyline characters: 5 bits per character, offset by 63, 0x20 means more follow
+     */
+    private void encode(long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while (v >= 0x20) {
+            encoded.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+        encoded.append((char) (v + 63));
+    }
+
+    /**
+     * A range of points, written as {"from","count","start","points","maps"}: points holds
+     * (time ms, x, y) per point as deltas of deltas from (start, 0, 0), polyline encoded;
+     * maps is [index, mapId, ...] for the first point and every map change.
+     */
+    public static final class Trail implements PayloadWritable {
+        private final long from;
+        private final int count;
+        private final long start;
+        private final String points;
+        private final int[] maps;
+
+        Trail(long from, int count, long start, String points, int[] maps) {
+            this.from = from;
+            this.count = count;
+            this.start = start;
+            this.points = points;
+            this.maps = maps;
+        }
+
+        /**
+         * Number of the first point in this range
+         */
+        public long getFrom() {
+            return from;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public void writeTo(PayloadWriter writer) {
+            writer.beginObject();
+            writer.name("from").value(from);
+            writer.name("count").value(count);
+            writer.name("start").value(start);
+            writer.name("points").value(points);
+            writer.name("maps").beginArray();
+            for (int map : maps) writer.value(map);
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import java.util.Map;
+
+/**
+ * SectionTiers - How often the slower payload sections are collected again
+ *
+ * Hero, target and entities are collected on every capture. Stats are collected every few
+ * seconds. Config profiles, galaxy and hangars are collected every minute, or as soon as their
+ * cheap fingerprint changes. In between, each capture carries the section's latest value, so
+ * the server always holds the latest value of every section - and a delta upload has nothing
+ * to send for it. Game thread only; the carried values are never mutated once collected.
+ */
+public class SectionTiers {
+
+    public enum Section {
+        STATS(5_000, "stats"),
+        CONFIG(60_000, "config"),
+        GALAXY(60_000), // Copied into each snapshot's own GalaxySnapshot instead
+        HANGARS(60_000, "hangars", "hangarsCount");
+
+        final long interval;
+        final String[] keys;
+
+        Section(long interval, String... keys) {
+            this.interval = interval;
+            this.keys = keys;
+        }
+    }
+
+    private final long[] dueAt = new long[Section.values().length];
+    private final long[] versions = new long[Section.values().length];
+    private final Object[][] latest = new Object[Section.values().length][];
+
+    public SectionTiers() {
+        for (Section section : Section.values()) {
+            latest[section.ordinal()] = new Object[section.keys.length];
+        }
+    }
+
+    /**
+     * True if the section must be collected now: its interval elapsed or its fingerprint changed
+     */
+    public boolean isDue(Section section, long now, long version) {
+        int i = section.ordinal();
+        return now >= dueAt[i] || version != versions[i];
+    }
+
+    /**
+     * The section was just collected into data - remember its value and when it is due next
+     */
+    public void collected(Section section, long now, long version, Map<String, Object> data) {
+        int i = section.ordinal();
+        dueAt[i] = now + section.interval;
+        versions[i] = version;
+        for (int k = 0; k < section.keys.length; k++) {
+            latest[i][k] = data.get(section.keys[k]);
+        }
+    }
+
+    /**
+     * Put the section's latest value into a capture that skips it
+     */
+    public void carry(Section section, Map<String, Object> data) {
+        Object[] values = latest[section.ordinal()];
+        for (int k = 0; k < section.keys.length; k++) {
+            if (values[k] != null) data.put(section.keys[k], values[k]);
+        }
+    }
+}
@@ -2,11 +2,25 @@ package fr.astrocommunity.Greysi.Web.services;
 
 import eu.darkbot.api.game.stats.Stats;
 import eu.darkbot.api.managers.StatsAPI;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
 
 /**
  * SessionTracker - Track session statistics and earnings
+ *
+ * Totals are also sampled into a one-hour ring (time, credits, uridium, experience, honor),
+ * from which rates, windowed deltas and an exponential moving average of the hourly rate are
+ * computed in constant time. Sampled and read on the game thread.
  */
 public class SessionTracker {
+    private static final long SAMPLE_INTERVAL = 5000;
+    private static final int CAPACITY = (int) (60 * 60_000 / SAMPLE_INTERVAL) + 1; // One hour of samples
+    private static final long EMA_TIME_CONSTANT = 5 * 60_000;
+    private static final long HOUR = 60 * 60_000;
+    private static final String[] METRICS = {"credits", "uridium", "experience", "honor"};
+    private static final long[] WINDOWS = {60_000, 15 * 60_000, HOUR};
+    private static final String[] WINDOW_NAMES = {"delta1m", "delta15m", "delta1h"};
+
     private final StatsAPI stats;
     private final long sessionStartTime;
     private final long creditsStart;
@@ -14,6 +28,12 @@ public class SessionTracker {
     private final long experienceStart;
     private final long honorStart;
 
+    private final long[] sampleTimes = new long[CAPACITY];
+    private final long[] sampleValues = new long[CAPACITY * METRICS.length];
+    private final double[] ema = new double[METRICS.length]; // Per hour
+    private long samples = 0;
+    private long nextSampleAt = 0;
+
     public SessionTracker(StatsAPI stats) {
         this.stats = stats;
         this.sessionStartTime = System.currentTimeMillis();
@@ -92,4 +112,94 @@ public class SessionTracker {
     public long getSessionStartTime() {
         return sessionStartTime;
     }
+
+    /**
+     * Record the current totals - call this every tick, at most one sample is kept per interval
+     */
+    public void sample(long now) {
+        if (now < nextSampleAt) return;
+        nextSampleAt = now + SAMPLE_INTERVAL;
+
+        int slot = (int) (samples % CAPACITY);
+        int base = slot * METRICS.length;
+        sampleTimes[slot] = now;
+        sampleValues[base] = getCurrentCredits();
+        sampleValues[base + 1] = getCurrentUridium();
+        sampleValues[base + 2] = getCurrentExperience();
+        sampleValues[base + 3] = getCurrentHonor();
+
+        if (samples > 0) {
+            int previous = (int) ((samples - 1) % CAPACITY);
+            long elapsed = now - sampleTimes[previous];
+            if (elapsed > 0) {
+                // Time-weighted so uneven sampling (bot stopped, lag) does not skew the average
+                double alpha = samples == 1 ? 1 : 1 - Math.exp(-(double) elapsed / EMA_TIME_CONSTANT);
+                for (int m = 0; m < METRICS.length; m++) {
+                    long delta = sampleValues[base + m] - sampleValues[previous * METRICS.length + m];
+                    double rate = delta * (double) HOUR / elapsed;
+                    ema[m] += alpha * (rate - ema[m]);
+                }
+            }
+        }
+        samples++;
+    }
+
+    /**
+     * Rates over the sampled window (a copy, safe to serialize on another thread), null until two samples exist
+     */
+    public Rates getRates() {
+        if (samples < 2) return null;
+
+        int latest = (int) ((samples - 1) % CAPACITY);
+        long[] deltas = new long[METRICS.length * WINDOWS.length];
+        double[] perMinute = new double[METRICS.length];
+        double[] perHour = new double[METRICS.length];
+        for (int w = 0; w < WINDOWS.length; w++) {
+            int back = (int) Math.min(samples - 1, WINDOWS[w] / SAMPLE_INTERVAL);
+            int old = (int) ((samples - 1 - back) % CAPACITY);
+            long elapsed = sampleTimes[latest] - sampleTimes[old];
+
+            for (int m = 0; m < METRICS.length; m++) {
+                long delta = sampleValues[latest * METRICS.length + m] - sampleValues[old * METRICS.length + m];
+                deltas[m * WINDOWS.length + w] = delta;
+                if (elapsed <= 0) continue;
+                if (w == 0) perMinute[m] = delta * 60_000.0 / elapsed;
+                if (w == WINDOWS.length - 1) perHour[m] = delta * (double) HOUR / elapsed;
+            }
+        }
+        return new Rates(perMinute, perHour, ema.clone(), deltas);
+    }
+
+    /**
+     * Rates per metric: {"credits":{"perMinute","perHour","ema","delta1m","delta15m","delta1h"},...}
+     */
+    public static final class Rates implements PayloadWritable {
+        private final double[] perMinute;
+        private final double[] perHour;
+        private final double[] ema;
+        private final long[] deltas;
+
+        Rates(double[] perMinute, double[] perHour, double[] ema, long[] deltas) {
+            this.perMinute = perMinute;
+            this.perHour = perHour;
+            this.ema = ema;
+            this.deltas = deltas;
+        }
+
+        @Override
+        public void writeTo(PayloadWriter writer) {
+            writer.beginObject();
+            for (int m = 0; m < METRICS.length; m++) {
+                writer.name(METRICS[m]).beginObject();
+                writer.name("perMinute").value(Math.round(perMinute[m]));
+                writer.name("perHour").value(Math.round(perHour[m]));
+                writer.name("ema").value(Math.round(ema[m]));
+                for (int w = 0; w < WINDOWS.length; w++) {
+                    writer.name(WINDOW_NAMES[w]).value(deltas[m * WINDOWS.length + w]);
+                }
+                writer.endObject();
+            }
+            writer.endObject();
+        }
+    }
 }
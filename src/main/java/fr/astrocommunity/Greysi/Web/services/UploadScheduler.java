@@ -0,0 +1,119 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UploadScheduler - Runs the upload task with an interval adapted to what the bot is doing
+ *
+ * Fast while fighting, normal while running, slow when stopped or when nothing changes.
+ * A server hint ("nextUpdateIn" in the response) overrides the next interval.
+ * The task is re-scheduled after it finishes, so slow uploads never pile up, and it backs
+ * off while the server has not answered the previous uploads yet.
+ * Runs on a shared executor; each run starts on a slot boundary so that bots with the
+ * same interval upload together and their samples can share a request.
+ */
+public class UploadScheduler {
+    public static final long FAST_INTERVAL = 500;
+    public static final long NORMAL_INTERVAL = 2000;
+    public static final long STOPPED_INTERVAL = 10_000;
+    public static final long IDLE_INTERVAL = 30_000;
+    private static final long MIN_INTERVAL = 250;
+    private static final long MAX_INTERVAL = 60_000;
+
+    private final ScheduledExecutorService executor;
+    private final long slot;
+    private final Runnable task;
+    private volatile ScheduledFuture<?> next;
+
+    private volatile long normalInterval = NORMAL_INTERVAL;
+    private volatile long interval = NORMAL_INTERVAL;
+    private volatile long serverHint = 0;
+    private volatile boolean started = false;
+
+    public UploadScheduler(ScheduledExecutorService executor, long slot, Runnable task) {
+        this.executor = executor;
+        this.slot = Math.max(1, slot);
+        this.task = task;
+    }
+
+    public void start() {
+        started = true;
+        scheduleNext();
+    }
+
+    public void stop() {
+        started = false;
+        ScheduledFuture<?> pending = next;
+        if (pending != null) pending.cancel(false);
+    }
+
+    /**
+     * Current upload interval in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Interval used while running normally (the sampling rate when uploads are batched)
+     */
+    public void setNormalInterval(long millis) {
+        this.normalInterval = Math.max(MIN_INTERVAL, Math.min(IDLE_INTERVAL, millis));
+    }
+
+    /**
+     * Server-requested delay before the next upload (applies once)
+     */
+    public void setServerHint(long millis) {
+        this.serverHint = millis;
+    }
+
+    /**
+     * Pick the next interval from the state seen in the last upload
+     */
+    public void update(boolean combat, boolean botRunning, boolean unchanged) {
+        long hint = serverHint;
+        if (hint > 0) {
+            serverHint = 0;
+            interval = Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, hint));
+        } else if (combat) {
+            interval = Math.min(FAST_INTERVAL, normalInterval);
+        } else if (!botRunning) {
+            interval = STOPPED_INTERVAL;
+        } else if (unchanged) {
+            // Back off progressively while nothing moves
+            interval = Math.min(IDLE_INTERVAL, Math.max(normalInterval, interval * 2));
+        } else {
+            interval = normalInterval;
+        }
+    }
+
+    /**
+     * Earlier uploads are still in flight - wait longer instead of piling up more
+     */
+    public void backOff() {
+        interval = Math.min(IDLE_INTERVAL, Math.max(normalInterval, interval * 2));
+    }
+
+    private void run() {
+        try {
+            task.run();
+        } catch (Exception e) {
+            // Never let one failure stop the schedule
+        } finally {
+            if (started) scheduleNext();
+        }
+    }
+
+    private void scheduleNext() {
+        long due = System.currentTimeMillis() + interval;
+        long delay = interval + (slot - due % slot) % slot;
+        try {
+            next = executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // Executor shut down
+        }
+    }
+}
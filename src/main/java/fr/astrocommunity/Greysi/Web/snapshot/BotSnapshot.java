@@ -0,0 +1,22 @@
+package fr.astrocommunity.Greysi.Web.snapshot;
+
+import java.util.Map;
+
+/**
+ * BotSnapshot - One consistent capture of the bot state, owned by a single thread at a time
+ *
+ * The typed sections are reused; data is the top-level payload map referencing them.
+ */
+public class BotSnapshot {
+    public final HeroSnapshot hero = new HeroSnapshot();
+    public final EntitySnapshot entities = new EntitySnapshot();
+    public final EntityGrid entityGrid = new EntityGrid(entities);
+    public final TargetSnapshot target = new TargetSnapshot();
+    public final GalaxySnapshot galaxy = new GalaxySnapshot();
+
+    public Map<String, Object> data;
+    public long capturedAt;
+    public boolean reduced; // Only the cheap sections, captured while the server is unreachable
+    public long deathCursor; // Deaths the payload accounts for, confirmed once the server has it
+    public long trailCursor; // Same for the hero trail points
+}
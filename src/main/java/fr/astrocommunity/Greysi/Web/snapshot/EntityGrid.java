@@ -0,0 +1,134 @@
+package fr.astrocommunity.Greysi.Web.snapshot;
+
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+/**
+ * EntityGrid - Minimap view of an EntitySnapshot with low-priority entities aggregated per grid cell
+ *
+ * NPCs and boxes (except the current target) are bucketed into square cells per type and written
+ * as {"type","x","y","count"} with the cell centroid; a cell holding a single entity is written
+ * as-is. Players, CBS, portals and bases always keep their exact position. The payload is
+ * therefore bounded by the number of cells instead of the crowd on the map.
+ */
+public class EntityGrid implements PayloadWritable {
+    private final EntitySnapshot entities;
+    private int cellSize;
+
+    // Open-addressing table: cell key -> aggregate, slots cleared after each write
+    private long[] keys = new long[256];
+    private int[] counts = new int[256];
+    private int[] firstRows = new int[256];
+    private double[] sumX = new double[256];
+    private double[] sumY = new double[256];
+    private int[] usedSlots = new int[128];
+    private int used;
+
+    public EntityGrid(EntitySnapshot entities) {
+        this.entities = entities;
+    }
+
+    /**
+     * Cell edge in game units
+     */
+    public void setCellSize(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+
+    @Override
+    public void writeTo(PayloadWriter w) {
+        w.beginArray();
+
+        for (int i = 0; i < entities.size(); i++) {
+            int typeCode = entities.isClusterable(i) ? clusterType(entities.getType(i)) : 0;
+            if (typeCode == 0) {
+                entities.writeRow(w, i);
+            } else {
+                add(typeCode, i);
+            }
+        }
+
+        // Cells in first-seen order, so unchanged scenes encode identically
+        for (int u = 0; u < used; u++) {
+            int slot = usedSlots[u];
+            int count = counts[slot];
+            if (count == 1) {
+                entities.writeRow(w, firstRows[slot]);
+            } else {
+                w.beginObject()
+                        .name("type").value(entities.getType(firstRows[slot]))
+                        .name("x").value(Math.round(sumX[slot] / count))
+                        .name("y").value(Math.round(sumY[slot] / count))
+                        .name("count").value(count)
+                        .endObject();
+            }
+            counts[slot] = 0;
+        }
+        used = 0;
+
+        w.endArray();
+    }
+
+    private void add(int typeCode, int row) {
+        if (used * 2 >= keys.length) grow();
+
+        long cx = (long) Math.floor(entities.getX(row) / cellSize);
+        long cy = (long) Math.floor(entities.getY(row) / cellSize);
+        long key = ((long) typeCode << 48) | ((cx & 0xFFFFFF) << 24) | (cy & 0xFFFFFF);
+
+        int slot = find(key);
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            firstRows[slot] = row;
+            sumX[slot] = 0;
+            sumY[slot] = 0;
+            usedSlots[used++] = slot;
+        }
+        counts[slot]++;
+        sumX[slot] += entities.getX(row);
+        sumY[slot] += entities.getY(row);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 29) ^ (key >>> 47)) * 0x9E3779B9 & mask;
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Double the table and re-insert the cells of the current write
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts, oldFirst = firstRows, oldUsed = usedSlots;
+        double[] oldX = sumX, oldY = sumY;
+        int capacity = keys.length * 2;
+
+        keys = new long[capacity];
+        counts = new int[capacity];
+        firstRows = new int[capacity];
+        sumX = new double[capacity];
+        sumY = new double[capacity];
+        usedSlots = new int[capacity / 2];
+
+        for (int u = 0; u < used; u++) {
+            int old = oldUsed[u];
+            int slot = find(oldKeys[old]);
+            keys[slot] = oldKeys[old];
+            counts[slot] = oldCounts[old];
+            firstRows[slot] = oldFirst[old];
+            sumX[slot] = oldX[old];
+            sumY[slot] = oldY[old];
+            usedSlots[u] = slot;
+        }
+    }
+
+    private static int clusterType(String type) {
+        if ("npc".equals(type)) return 1;
+        if ("box".equals(type)) return 2;
+        return 0;
+    }
+}
@@ -0,0 +1,140 @@
+package fr.astrocommunity.Greysi.Web.snapshot;
+
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+import java.util.Arrays;
+
+/**
+ * EntitySnapshot - Reusable minimap entity table stored as parallel primitive arrays
+ *
+ * One row per entity; arrays only grow, so a steady scene refills without allocating.
+ */
+public class EntitySnapshot implements PayloadWritable {
+    private static final byte HAS_HP = 1;
+    private static final byte HAS_NAME = 2;
+    private static final byte HAS_CLAN = 4;
+    private static final byte HAS_OWNER = 8;
+    private static final byte OWNED = 16;
+    private static final byte ENEMY = 32;
+    private static final byte EXACT = 64;
+
+    private int size;
+    private String[] types = new String[64];
+    private String[] names = new String[64];
+    private String[] clans = new String[64];
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] hps = new double[64];
+    private byte[] flags = new byte[64];
+
+    public void clear() {
+        // Drop string references so game objects are not kept alive between cycles
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(clans, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Append an entity row and return its index
+     */
+    public int add(String type, double x, double y) {
+        if (size == types.length) grow();
+        int i = size++;
+        types[i] = type;
+        xs[i] = x;
+        ys[i] = y;
+        flags[i] = 0;
+        return i;
+    }
+
+    public void setName(int i, String name) {
+        names[i] = name;
+        flags[i] |= HAS_NAME;
+    }
+
+    public void setClan(int i, String clan) {
+        clans[i] = clan;
+        flags[i] |= HAS_CLAN;
+    }
+
+    public void setHp(int i, double hpPercent) {
+        hps[i] = hpPercent;
+        flags[i] |= HAS_HP;
+    }
+
+    /**
+     * Battle station ownership (owner name goes into the name column)
+     */
+    public void setOwner(int i, String owner, boolean owned, boolean enemy) {
+        names[i] = owner;
+        flags[i] |= HAS_OWNER;
+        if (owned) flags[i] |= OWNED;
+        if (enemy) flags[i] |= ENEMY;
+    }
+
+    /**
+     * Never aggregate this row on the minimap (e.g. the current target)
+     */
+    public void setExact(int i) {
+        flags[i] |= EXACT;
+    }
+
+    public boolean isClusterable(int i) {
+        return (flags[i] & EXACT) == 0;
+    }
+
+    public String getType(int i) {
+        return types[i];
+    }
+
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    @Override
+    public void writeTo(PayloadWriter w) {
+        w.beginArray();
+        for (int i = 0; i < size; i++) {
+            writeRow(w, i);
+        }
+        w.endArray();
+    }
+
+    /**
+     * Write one row as an entity object
+     */
+    public void writeRow(PayloadWriter w, int i) {
+        byte f = flags[i];
+        w.beginObject().name("type").value(types[i]);
+        if ((f & HAS_NAME) != 0) w.name("name").value(names[i]);
+        if ((f & HAS_CLAN) != 0) w.name("clan").value(clans[i]);
+        w.name("x").coordinate(xs[i]).name("y").coordinate(ys[i]);
+        if ((f & HAS_HP) != 0) w.name("hp").value(hps[i]);
+        if ((f & HAS_OWNER) != 0) {
+            w.name("owner").value(names[i])
+                    .name("isOwned").value((f & OWNED) != 0)
+                    .name("isEnemy").value((f & ENEMY) != 0);
+        }
+        w.endObject();
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        names = Arrays.copyOf(names, capacity);
+        clans = Arrays.copyOf(clans, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        hps = Arrays.copyOf(hps, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+}
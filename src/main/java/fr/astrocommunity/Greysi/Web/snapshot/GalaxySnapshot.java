@@ -0,0 +1,114 @@
+package fr.astrocommunity.Greysi.Web.snapshot;
+
+import eu.darkbot.api.game.galaxy.GalaxyGate;
+import eu.darkbot.api.game.galaxy.GalaxyInfo;
+import eu.darkbot.api.game.galaxy.GateInfo;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+/**
+ * GalaxySnapshot - Reusable galaxy spinner info, one primitive slot per GalaxyGate
+ */
+public class GalaxySnapshot implements PayloadWritable {
+    private static final GalaxyGate[] GATES = GalaxyGate.values(); // values() clones on every call
+
+    public boolean present;
+    public int uridium, freeEnergy, energyCost, spinSalePercent;
+    public boolean spinSale, galaxyGateDay, bonusRewardsDay;
+
+    private final boolean[] gatePresent = new boolean[GATES.length];
+    private final int[] currentParts = new int[GATES.length];
+    private final int[] totalParts = new int[GATES.length];
+    private final int[] currentWave = new int[GATES.length];
+    private final int[] totalWave = new int[GATES.length];
+    private final int[] livesLeft = new int[GATES.length];
+    private final boolean[] onMap = new boolean[GATES.length];
+    private final boolean[] completed = new boolean[GATES.length];
+
+    /**
+     * Copy the spinner state, or mark it absent
+     */
+    public void capture(GalaxyInfo info) {
+        present = info != null;
+        if (!present) return;
+
+        uridium = info.getUridium();
+        freeEnergy = info.getFreeEnergy();
+        energyCost = info.getEnergyCost();
+        spinSale = info.isSpinSale();
+        spinSalePercent = info.getSpinSalePercentage();
+        galaxyGateDay = info.isGalaxyGateDay();
+        bonusRewardsDay = info.isBonusRewardsDay();
+
+        for (int i = 0; i < GATES.length; i++) {
+            gatePresent[i] = false;
+            try {
+                GateInfo gate = info.getGateInfo(GATES[i]);
+                if (gate != null) {
+                    currentParts[i] = gate.getCurrentParts();
+                    totalParts[i] = gate.getTotalParts();
+                    currentWave[i] = gate.getCurrentWave();
+                    totalWave[i] = gate.getTotalWave();
+                    livesLeft[i] = gate.getLivesLeft();
+                    onMap[i] = gate.isOnMap();
+                    completed[i] = gate.isCompleted();
+                    gatePresent[i] = true;
+                }
+            } catch (Exception e) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Same state as another capture - a snapshot that skips the spinner keeps the latest one
+     */
+    public void copyFrom(GalaxySnapshot other) {
+        if (other == this) return;
+        present = other.present;
+        uridium = other.uridium;
+        freeEnergy = other.freeEnergy;
+        energyCost = other.energyCost;
+        spinSalePercent = other.spinSalePercent;
+        spinSale = other.spinSale;
+        galaxyGateDay = other.galaxyGateDay;
+        bonusRewardsDay = other.bonusRewardsDay;
+        System.arraycopy(other.gatePresent, 0, gatePresent, 0, GATES.length);
+        System.arraycopy(other.currentParts, 0, currentParts, 0, GATES.length);
+        System.arraycopy(other.totalParts, 0, totalParts, 0, GATES.length);
+        System.arraycopy(other.currentWave, 0, currentWave, 0, GATES.length);
+        System.arraycopy(other.totalWave, 0, totalWave, 0, GATES.length);
+        System.arraycopy(other.livesLeft, 0, livesLeft, 0, GATES.length);
+        System.arraycopy(other.onMap, 0, onMap, 0, GATES.length);
+        System.arraycopy(other.completed, 0, completed, 0, GATES.length);
+    }
+
+    @Override
+    public void writeTo(PayloadWriter w) {
+        w.beginObject()
+                .name("uridium").value(uridium)
+                .name("freeEnergy").value(freeEnergy)
+                .name("energyCost").value(energyCost)
+                .name("spinSale").value(spinSale)
+                .name("spinSalePercent").value(spinSalePercent)
+                .name("galaxyGateDay").value(galaxyGateDay)
+                .name("bonusRewardsDay").value(bonusRewardsDay)
+                .name("gates").beginArray();
+
+        for (int i = 0; i < GATES.length; i++) {
+            if (!gatePresent[i]) continue;
+            w.beginObject()
+                    .name("name").value(GATES[i].getName())
+                    .name("id").value(GATES[i].getId())
+                    .name("currentParts").value(currentParts[i])
+                    .name("totalParts").value(totalParts[i])
+                    .name("currentWave").value(currentWave[i])
+                    .name("totalWave").value(totalWave[i])
+                    .name("livesLeft").value(livesLeft[i])
+                    .name("onMap").value(onMap[i])
+                    .name("completed").value(completed[i])
+                    .endObject();
+        }
+        w.endArray().endObject();
+    }
+}
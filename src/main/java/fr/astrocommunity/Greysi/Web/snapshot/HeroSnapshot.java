@@ -0,0 +1,46 @@
+package fr.astrocommunity.Greysi.Web.snapshot;
+
+import eu.darkbot.api.game.other.Health;
+import eu.darkbot.api.managers.HeroAPI;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+/**
+ * HeroSnapshot - Reusable hero position and health, refilled every cycle
+ */
+public class HeroSnapshot implements PayloadWritable {
+    public double x, y;
+    public int hp, maxHp, shield, maxShield, speed;
+    public double hpPercent, shieldPercent;
+
+    /**
+     * Copy the current hero state
+     */
+    public void capture(HeroAPI hero) {
+        x = hero.getLocationInfo().getX();
+        y = hero.getLocationInfo().getY();
+        Health health = hero.getHealth();
+        hp = health.getHp();
+        maxHp = health.getMaxHp();
+        hpPercent = health.hpPercent();
+        shield = health.getShield();
+        maxShield = health.getMaxShield();
+        shieldPercent = health.shieldPercent();
+        speed = hero.getSpeed();
+    }
+
+    @Override
+    public void writeTo(PayloadWriter w) {
+        w.beginObject()
+                .name("x").coordinate(x)
+                .name("y").coordinate(y)
+                .name("hp").value(hp)
+                .name("maxHp").value(maxHp)
+                .name("hpPercent").value(hpPercent)
+                .name("shield").value(shield)
+                .name("maxShield").value(maxShield)
+                .name("shieldPercent").value(shieldPercent)
+                .name("speed").value(speed)
+                .endObject();
+    }
+}
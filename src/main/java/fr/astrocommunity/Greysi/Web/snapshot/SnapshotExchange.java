@@ -0,0 +1,42 @@
+package fr.astrocommunity.Greysi.Web.snapshot;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SnapshotExchange - Lock-free triple buffer between the game tick thread and the upload worker
+ *
+ * The producer fills back() and publishes it; the consumer takes the latest published snapshot.
+ * Neither side ever waits, and the consumer never sees a snapshot that is still being written.
+ */
+public class SnapshotExchange {
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final BotSnapshot[] buffers = {new BotSnapshot(), new BotSnapshot(), new BotSnapshot()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // Producer only
+    private int front = 2; // Consumer only
+
+    /**
+     * Buffer the producer may fill
+     */
+    public BotSnapshot back() {
+        return buffers[back];
+    }
+
+    /**
+     * Hand the filled back buffer over to the consumer
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Latest published snapshot, or null if nothing new since the last call
+     */
+    public BotSnapshot take() {
+        if ((middle.get() & FRESH) == 0) return null;
+        front = middle.getAndSet(front) & INDEX;
+        return buffers[front];
+    }
+}
@@ -0,0 +1,58 @@
+package fr.astrocommunity.Greysi.Web.snapshot;
+
+import eu.darkbot.api.game.entities.Entity;
+import eu.darkbot.api.game.entities.Ship;
+import eu.darkbot.api.game.other.Health;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWritable;
+import fr.astrocommunity.Greysi.Web.utils.PayloadWriter;
+
+/**
+ * TargetSnapshot - Reusable state of the hero's current target
+ */
+public class TargetSnapshot implements PayloadWritable {
+    public boolean present;
+    public boolean hasHealth;
+    public double x, y;
+    public String name;
+    public int hp, maxHp, shield, maxShield;
+
+    /**
+     * Copy the target state, or mark it absent
+     */
+    public void capture(Entity target) {
+        present = target != null;
+        if (!present) return;
+
+        x = target.getLocationInfo().getX();
+        y = target.getLocationInfo().getY();
+
+        // Ships (players, NPCs) expose name and health
+        hasHealth = target instanceof Ship;
+        if (hasHealth) {
+            Ship ship = (Ship) target;
+            Health health = ship.getHealth();
+            name = ship.getEntityInfo().getUsername();
+            hp = health.getHp();
+            maxHp = health.getMaxHp();
+            shield = health.getShield();
+            maxShield = health.getMaxShield();
+        } else {
+            name = null;
+        }
+    }
+
+    @Override
+    public void writeTo(PayloadWriter w) {
+        w.beginObject()
+                .name("x").coordinate(x)
+                .name("y").coordinate(y);
+        if (hasHealth) {
+            w.name("name").value(name)
+                    .name("hp").value(hp)
+                    .name("maxHp").value(maxHp)
+                    .name("shield").value(shield)
+                    .name("maxShield").value(maxShield);
+        }
+        w.endObject();
+    }
+}
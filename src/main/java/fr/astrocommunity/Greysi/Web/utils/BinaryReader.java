@@ -0,0 +1,122 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BinaryReader - Replay a BinaryWriter document into another PayloadWriter
+ *
+ * Used to re-send a binary body as JSON once the server stops accepting the binary format.
+ * Float32 values come out as their shortest decimal form, so coordinates read as they were written.
+ */
+public final class BinaryReader {
+    private final byte[] buf;
+    private int pos;
+    private final int end;
+    private final List<String> strings = new ArrayList<>();
+
+    private BinaryReader(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * Write the document in buf[offset, offset + length) as one value of out
+     */
+    public static void transcode(byte[] buf, int offset, int length, PayloadWriter out) throws IOException {
+        BinaryReader reader = new BinaryReader(buf, offset, length);
+        if (reader.next() != BinaryWriter.VERSION) throw new IOException("Unknown binary version");
+        reader.value(reader.next(), out);
+    }
+
+    private void value(byte tag, PayloadWriter out) throws IOException {
+        switch (tag) {
+            case BinaryWriter.NULL:
+                out.nullValue();
+                break;
+            case BinaryWriter.FALSE:
+                out.value(false);
+                break;
+            case BinaryWriter.TRUE:
+                out.value(true);
+                break;
+            case BinaryWriter.INT:
+                long zigzag = varint();
+                out.value((zigzag >>> 1) ^ -(zigzag & 1));
+                break;
+            case BinaryWriter.FLOAT32:
+                out.value(Double.parseDouble(Float.toString(Float.intBitsToFloat((int) bytes(4)))));
+                break;
+            case BinaryWriter.FLOAT64:
+                out.value(Double.longBitsToDouble(bytes(8)));
+                break;
+            case BinaryWriter.STRING:
+            case BinaryWriter.STRING_REF:
+                out.value(string(tag));
+                break;
+            case BinaryWriter.OBJECT:
+                out.beginObject();
+                for (byte key = next(); key != BinaryWriter.END; key = next()) {
+                    out.name(string(key));
+                    value(next(), out);
+                }
+                out.endObject();
+                break;
+            case BinaryWriter.ARRAY:
+                out.beginArray();
+                for (byte item = next(); item != BinaryWriter.END; item = next()) {
+                    value(item, out);
+                }
+                out.endArray();
+                break;
+            case BinaryWriter.DOCUMENT:
+                int length = (int) varint();
+                if (length < 0 || pos + length > end) throw new IOException("Truncated document");
+                transcode(buf, pos, length, out); // Its own string table
+                pos += length;
+                break;
+            default:
+                throw new IOException("Unknown tag " + tag);
+        }
+    }
+
+    private String string(byte tag) throws IOException {
+        if (tag == BinaryWriter.STRING_REF) {
+            int id = (int) varint();
+            if (id < 0 || id >= strings.size()) throw new IOException("Unknown string " + id);
+            return strings.get(id);
+        }
+        if (tag != BinaryWriter.STRING) throw new IOException("Expected a string, got tag " + tag);
+        int length = (int) varint();
+        if (length < 0 || pos + length > end) throw new IOException("Truncated string");
+        String str = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        strings.add(str);
+        return str;
+    }
+
+    private long bytes(int count) throws IOException {
+        if (pos + count > end) throw new IOException("Truncated number");
+        long value = 0;
+        for (int i = 0; i < count; i++) value = (value << 8) | (buf[pos++] & 0xFF);
+        return value;
+    }
+
+    private long varint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = next();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private byte next() throws IOException {
+        if (pos >= end) throw new IOException("Truncated document");
+        return buf[pos++];
+    }
+}
@@ -0,0 +1,319 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import java.util.Arrays;
+
+/**
+ * BinaryWriter - Compact tagged binary encoder (application/x-greysi-bin), same structure as JSON
+ *
+ * A document is the version byte 0x01 followed by one value. Every value starts with a tag:
+ *   0x00 null, 0x01 false, 0x02 true
+ *   0x03 integer - zigzag varint
+ *   0x04 float32 / 0x05 float64 - big-endian IEEE 754
+ *   0x06 string - varint byte length + UTF-8; the decoder appends it to the document's string table
+ *   0x07 string reference - varint index into the string table
+ *   0x08 object (key value ... 0x0A), 0x09 array (value ... 0x0A)
+ *   0x0B embedded document - varint byte length + a whole document with its own string table
+ * Object keys are string values, so each key name (and each repeated short value such as an
+ * entity type) is sent once per document and then referenced by index. Coordinates are float32,
+ * and doubles that float32 holds exactly are sent as float32 too.
+ */
+public class BinaryWriter extends PayloadWriter {
+    public static final String CONTENT_TYPE = "application/x-greysi-bin";
+    public static final byte VERSION = 1;
+
+    public static final byte NULL = 0x00;
+    public static final byte FALSE = 0x01;
+    public static final byte TRUE = 0x02;
+    public static final byte INT = 0x03;
+    public static final byte FLOAT32 = 0x04;
+    public static final byte FLOAT64 = 0x05;
+    public static final byte STRING = 0x06;
+    public static final byte STRING_REF = 0x07;
+    public static final byte OBJECT = 0x08;
+    public static final byte ARRAY = 0x09;
+    public static final byte END = 0x0A;
+    public static final byte DOCUMENT = 0x0B;
+
+    // Longer strings are still numbered by the decoder but never worth referencing
+    private static final int MAX_INTERNED_BYTES = 64;
+
+    private byte[] buf;
+    private int len;
+
+    // String table: open addressing, key -> index of its first occurrence
+    private String[] internKeys = new String[256];
+    private int[] internIds = new int[256];
+    private int interned;
+    private int nextStringId;
+
+    public BinaryWriter() {
+        this(8192);
+    }
+
+    public BinaryWriter(int initialCapacity) {
+        this.buf = new byte[Math.max(64, initialCapacity)];
+        reset();
+    }
+
+    @Override
+    public BinaryWriter reset() {
+        len = 0;
+        write(VERSION);
+        if (interned > 0) {
+            Arrays.fill(internKeys, null);
+            interned = 0;
+        }
+        nextStringId = 0;
+        return this;
+    }
+
+    @Override
+    public BinaryWriter beginObject() {
+        write(OBJECT);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter endObject() {
+        write(END);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter beginArray() {
+        write(ARRAY);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter endArray() {
+        write(END);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter name(String name) {
+        string(name);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter value(String value) {
+        if (value == null) write(NULL);
+        else string(value);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter value(boolean value) {
+        write(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter value(long value) {
+        write(INT);
+        varint((value << 1) ^ (value >> 63));
+        return this;
+    }
+
+    @Override
+    public BinaryWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            write(NULL); // Same as the JSON writer
+        } else if ((float) value == value) {
+            float32((float) value);
+        } else {
+            ensure(9);
+            buf[len++] = FLOAT64;
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[len++] = (byte) (bits >>> shift);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public BinaryWriter coordinate(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) write(NULL);
+        else float32((float) value);
+        return this;
+    }
+
+    @Override
+    public BinaryWriter nullValue() {
+        write(NULL);
+        return this;
+    }
+
+    /**
+     * Embed an already encoded binary document (e.g. one sample of a batch)
+     */
+    @Override
+    public BinaryWriter rawValue(byte[] document, int offset, int length) {
+        write(DOCUMENT);
+        varint(length);
+        ensure(length);
+        System.arraycopy(document, offset, buf, len, length);
+        len += length;
+        return this;
+    }
+
+    @Override
+    public BinaryWriter value(Object value) {
+        super.value(value);
+        return this;
+    }
+
+    @Override
+    public byte[] buffer() {
+        return buf;
+    }
+
+    @Override
+    public int size() {
+        return len;
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    /**
+     * Reference a string already in the table, or write it and number it
+     */
+    private void string(String str) {
+        int length = str.length();
+        int slot = -1;
+        if (length <= MAX_INTERNED_BYTES) {
+            slot = slot(str);
+            if (internKeys[slot] != null) {
+                write(STRING_REF);
+                varint(internIds[slot]);
+                return;
+            }
+        }
+
+        int bytes = utf8Length(str);
+        write(STRING);
+        varint(bytes);
+        ensure(bytes);
+        utf8(str);
+
+        int id = nextStringId++;
+        if (slot != -1 && bytes <= MAX_INTERNED_BYTES) {
+            internKeys[slot] = str;
+            internIds[slot] = id;
+            if (++interned * 2 > internKeys.length) growTable();
+        }
+    }
+
+    private int slot(String str) {
+        int mask = internKeys.length - 1;
+        int slot = str.hashCode() & mask;
+        while (internKeys[slot] != null && !internKeys[slot].equals(str)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growTable() {
+        String[] keys = internKeys;
+        int[] ids = internIds;
+        internKeys = new String[keys.length * 2];
+        internIds = new int[keys.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                int slot = slot(keys[i]);
+                internKeys[slot] = keys[i];
+                internIds[slot] = ids[i];
+            }
+        }
+    }
+
+    private static int utf8Length(String str) {
+        int bytes = 0;
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Same encoding as utf8Length counted - the caller made room
+     */
+    private void utf8(String str) {
+        byte[] b = buf;
+        int pos = len;
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, str.charAt(++i));
+                b[pos++] = (byte) (0xF0 | (cp >> 18));
+                b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                b[pos++] = '?'; // Lone surrogate, not encodable
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        len = pos;
+    }
+
+    private void float32(float value) {
+        ensure(5);
+        buf[len++] = FLOAT32;
+        int bits = Float.floatToIntBits(value);
+        buf[len++] = (byte) (bits >>> 24);
+        buf[len++] = (byte) (bits >>> 16);
+        buf[len++] = (byte) (bits >>> 8);
+        buf[len++] = (byte) bits;
+    }
+
+    private void varint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buf[len++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[len++] = (byte) value;
+    }
+
+    private void write(byte b) {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+}
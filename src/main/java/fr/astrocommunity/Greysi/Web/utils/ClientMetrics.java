@@ -0,0 +1,207 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ClientMetrics - Where one bot's time and bytes go: collection per section, serialization,
+ * upload round trips, request sizes, retries and failures
+ *
+ * Timers are nanoseconds in histograms from ~1 µs to ~8 s, sizes are bytes from 64 B to ~32 MB.
+ * Everything is cumulative since install. snapshot() is the compact "clientMetrics" payload
+ * section (counts, sums and p50/p99 per histogram), toPrometheus() the text exposition format.
+ */
+public class ClientMetrics {
+    private static final long NANOS_BASE = 1024;
+    private static final int NANOS_BUCKETS = 24;
+    private static final long BYTES_BASE = 64;
+    private static final int BYTES_BUCKETS = 20;
+
+    /**
+     * Collection sections, timed separately
+     */
+    public enum Section {
+        BASIC, MODULE, HERO, STATS, MAP, PERFORMANCE, TARGET, CONFIG, ENTITIES, GALAXY, HANGARS, DEATHS, TRAIL;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Histogram[] sections = new Histogram[Section.values().length];
+    private final Histogram serialize = new Histogram(NANOS_BASE, NANOS_BUCKETS);
+    private final Histogram rtt = new Histogram(NANOS_BASE, NANOS_BUCKETS);
+    private final Histogram payloadSize = new Histogram(BYTES_BASE, BYTES_BUCKETS);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public ClientMetrics() {
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new Histogram(NANOS_BASE, NANOS_BUCKETS);
+        }
+    }
+
+    /**
+     * Record a section that started at start (System.nanoTime), and return now - the next section's start
+     */
+    public long time(Section section, long start) {
+        long now = System.nanoTime();
+        sections[section.ordinal()].record(now - start);
+        return now;
+    }
+
+    /**
+     * One payload encoded (delta + writer) in nanos, size bytes before compression
+     */
+    public void serialized(long nanos, int size) {
+        serialize.record(nanos);
+        payloadSize.record(size);
+    }
+
+    /**
+     * Request answered (any status below 500)
+     */
+    public void responded(long rttNanos) {
+        requests.incrementAndGet();
+        rtt.record(rttNanos);
+    }
+
+    /**
+     * Request failed: network error, timeout or server error
+     */
+    public void failed(long rttNanos) {
+        requests.incrementAndGet();
+        failures.incrementAndGet();
+        rtt.record(rttNanos);
+    }
+
+    /**
+     * Bytes actually put on the wire (after compression)
+     */
+    public void wire(long bytes) {
+        wireBytes.addAndGet(bytes);
+    }
+
+    public void retry() {
+        retries.incrementAndGet();
+    }
+
+    /**
+     * Unexpected exception in the upload path
+     */
+    public void error() {
+        errors.incrementAndGet();
+    }
+
+    public Histogram getRtt() {
+        return rtt;
+    }
+
+    /**
+     * Consistent copy for the payload, serialized while recording continues
+     */
+    public Snapshot snapshot() {
+        Histogram[] sectionCopies = new Histogram[sections.length];
+        for (int i = 0; i < sections.length; i++) sectionCopies[i] = sections[i].copy();
+        return new Snapshot(sectionCopies, serialize.copy(), rtt.copy(), payloadSize.copy(),
+                new long[]{requests.get(), wireBytes.get(), retries.get(), failures.get(), errors.get()});
+    }
+
+    /**
+     * Prometheus text exposition of everything, labelled with the bot
+     */
+    public String toPrometheus(String botId) {
+        String bot = "bot=\"" + (botId == null ? "" : botId.replace("\\", "\\\\").replace("\"", "\\\"")) + "\"";
+        StringBuilder sb = new StringBuilder(16384);
+
+        sb.append("# HELP greysi_collect_seconds Time spent collecting each section on the game thread\n");
+        sb.append("# TYPE greysi_collect_seconds histogram\n");
+        for (Section section : Section.values()) {
+            promHistogram(sb, "greysi_collect_seconds", bot + ",section=\"" + section.label + "\"", sections[section.ordinal()], 1e-9);
+        }
+        sb.append("# HELP greysi_serialize_seconds Time spent delta encoding and writing one payload\n");
+        sb.append("# TYPE greysi_serialize_seconds histogram\n");
+        promHistogram(sb, "greysi_serialize_seconds", bot, serialize, 1e-9);
+        sb.append("# HELP greysi_upload_rtt_seconds Upload round trip, as seen by the bot\n");
+        sb.append("# TYPE greysi_upload_rtt_seconds histogram\n");
+        promHistogram(sb, "greysi_upload_rtt_seconds", bot, rtt, 1e-9);
+        sb.append("# HELP greysi_payload_bytes Encoded payload size before compression\n");
+        sb.append("# TYPE greysi_payload_bytes histogram\n");
+        promHistogram(sb, "greysi_payload_bytes", bot, payloadSize, 1);
+
+        promCounter(sb, "greysi_requests_total", "Upload requests", bot, requests.get());
+        promCounter(sb, "greysi_wire_bytes_total", "Bytes sent after compression", bot, wireBytes.get());
+        promCounter(sb, "greysi_retries_total", "Requests sent again", bot, retries.get());
+        promCounter(sb, "greysi_failures_total", "Uploads failed (network, timeout, server error)", bot, failures.get());
+        promCounter(sb, "greysi_errors_total", "Unexpected errors in the upload path", bot, errors.get());
+        return sb.toString();
+    }
+
+    private static void promHistogram(StringBuilder sb, String name, String labels, Histogram h, double scale) {
+        long cumulative = 0;
+        for (int i = 0; i < h.buckets(); i++) {
+            cumulative += h.count(i);
+            String le = i == h.buckets() - 1 ? "+Inf" : Double.toString(h.upperBound(i) * scale);
+            sb.append(name).append("_bucket{").append(labels).append(",le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        sb.append(name).append("_sum{").append(labels).append("} ").append(h.sum() * scale).append('\n');
+        sb.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+
+    private static void promCounter(StringBuilder sb, String name, String help, String labels, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    /**
+     * {"collect":{"hero":[n,sumUs,p50Us,p99Us],...},"serialize":[..],"rtt":[..],"payloadBytes":[n,sum,p50,p99],
+     * "requests":n,"wireBytes":n,"retries":n,"failures":n,"errors":n} - times in microseconds
+     */
+    public static final class Snapshot implements PayloadWritable {
+        private final Histogram[] sections;
+        private final Histogram serialize;
+        private final Histogram rtt;
+        private final Histogram payloadSize;
+        private final long[] counters;
+
+        Snapshot(Histogram[] sections, Histogram serialize, Histogram rtt, Histogram payloadSize, long[] counters) {
+            this.sections = sections;
+            this.serialize = serialize;
+            this.rtt = rtt;
+            this.payloadSize = payloadSize;
+            this.counters = counters;
+        }
+
+        @Override
+        public void writeTo(PayloadWriter writer) {
+            writer.beginObject();
+            writer.name("collect").beginObject();
+            for (Section section : Section.values()) {
+                Histogram h = sections[section.ordinal()];
+                if (h.count() > 0) summary(writer.name(section.label), h, 1000);
+            }
+            writer.endObject();
+            summary(writer.name("serialize"), serialize, 1000);
+            summary(writer.name("rtt"), rtt, 1000);
+            summary(writer.name("payloadBytes"), payloadSize, 1);
+            writer.name("requests").value(counters[0]);
+            writer.name("wireBytes").value(counters[1]);
+            writer.name("retries").value(counters[2]);
+            writer.name("failures").value(counters[3]);
+            writer.name("errors").value(counters[4]);
+            writer.endObject();
+        }
+
+        private static void summary(PayloadWriter writer, Histogram h, long divisor) {
+            writer.beginArray()
+                    .value(h.count())
+                    .value(h.sum() / divisor)
+                    .value(h.percentile(50) / divisor)
+                    .value(h.percentile(99) / divisor)
+                    .endArray();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram - Fixed power-of-two buckets of primitive counters, safe to record from any thread
+ *
+ * Bucket i holds values up to base << i, the last one everything above. Recording is one
+ * index computation and two atomic adds; percentiles are bucket upper bounds.
+ */
+public class Histogram {
+    private final long base;
+    private final AtomicLongArray counts;
+    private final AtomicLong sum = new AtomicLong();
+
+    public Histogram(long base, int buckets) {
+        this.base = base;
+        this.counts = new AtomicLongArray(buckets);
+    }
+
+    public void record(long value) {
+        int bucket = value <= base ? 0 : 64 - Long.numberOfLeadingZeros((value - 1) / base);
+        counts.incrementAndGet(Math.min(bucket, counts.length() - 1));
+        sum.addAndGet(value);
+    }
+
+    public int buckets() {
+        return counts.length();
+    }
+
+    /**
+     * Upper bound of bucket i, Long.MAX_VALUE for the last one
+     */
+    public long upperBound(int i) {
+        return i == counts.length() - 1 ? Long.MAX_VALUE : base << i;
+    }
+
+    public long count(int i) {
+        return counts.get(i);
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        return total;
+    }
+
+    public long sum() {
+        return sum.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding this percentile (0-100), 0 when empty.
+     * Values in the last bucket report the bound below it.
+     */
+    public long percentile(double p) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(p / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, rank)) return base << Math.min(i, counts.length() - 2);
+        }
+        return base << (counts.length() - 2);
+    }
+
+    /**
+     * Copy of the current counts, e.g. to serialize while recording continues
+     */
+    public Histogram copy() {
+        Histogram copy = new Histogram(base, counts.length());
+        copy.add(this, 1);
+        return copy;
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) the counts of a histogram with the same buckets
+     */
+    public void add(Histogram other, int sign) {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.addAndGet(i, sign * other.counts.get(i));
+        }
+        sum.addAndGet(sign * other.sum.get());
+    }
+}
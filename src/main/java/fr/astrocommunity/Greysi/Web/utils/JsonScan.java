@@ -0,0 +1,129 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import java.util.Arrays;
+
+/**
+ * JsonScan - Read top-level fields of a small JSON object in place, without building anything
+ *
+ * Keys are matched literally (no escapes in searched keys). Values nested in other objects,
+ * arrays or strings are never mistaken for top-level keys.
+ */
+public class JsonScan {
+
+    /**
+     * Set positions[i] to the index where the value of keys[i] starts, or -1 if absent.
+     * False if json is not an object.
+     */
+    public static boolean locate(String json, String[] keys, int[] positions) {
+        Arrays.fill(positions, -1);
+        int n = json.length();
+        int start = skipWhitespace(json, 0);
+        if (start >= n || json.charAt(start) != '{') return false;
+
+        int depth = 0;
+        boolean keyPosition = false;
+        for (int i = start; i < n; i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                int end = stringEnd(json, i);
+                if (end < 0) return false;
+                if (depth == 1 && keyPosition) {
+                    int colon = skipWhitespace(json, end + 1);
+                    if (colon >= n || json.charAt(colon) != ':') return false;
+                    int value = skipWhitespace(json, colon + 1);
+                    int length = end - i - 1;
+                    for (int k = 0; k < keys.length; k++) {
+                        if (positions[k] < 0 && keys[k].length() == length && json.regionMatches(i + 1, keys[k], 0, length)) {
+                            positions[k] = value;
+                        }
+                    }
+                    keyPosition = false;
+                    i = colon;
+                } else {
+                    i = end;
+                }
+            } else if (c == '{' || c == '[') {
+                depth++;
+                keyPosition = c == '{' && depth == 1;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) return true;
+            } else if (c == ',' && depth == 1) {
+                keyPosition = true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Integer part of the number at index (0 if there is none)
+     */
+    public static long longAt(String json, int index) {
+        int n = json.length();
+        boolean negative = index < n && json.charAt(index) == '-';
+        if (negative) index++;
+        long value = 0;
+        while (index < n) {
+            char c = json.charAt(index++);
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    public static boolean booleanAt(String json, int index) {
+        return json.startsWith("true", index);
+    }
+
+    /**
+     * String at index (unescaped), or null if the value is not a string
+     */
+    public static String stringAt(String json, int index) {
+        if (index < 0 || index >= json.length() || json.charAt(index) != '"') return null;
+        int end = stringEnd(json, index);
+        if (end < 0) return null;
+        if (json.indexOf('\\', index) == -1 || json.indexOf('\\', index) > end) {
+            return json.substring(index + 1, end);
+        }
+
+        StringBuilder sb = new StringBuilder(end - index);
+        for (int i = index + 1; i < end; i++) {
+            char c = json.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = json.charAt(++i);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    sb.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: sb.append(e); // \" \\ \/
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Index of the closing quote of the string opening at index, or -1
+     */
+    private static int stringEnd(String json, int index) {
+        for (int i = index + 1, n = json.length(); i < n; i++) {
+            char c = json.charAt(i);
+            if (c == '\\') i++;
+            else if (c == '"') return i;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(String json, int index) {
+        int n = json.length();
+        while (index < n && Character.isWhitespace(json.charAt(index))) index++;
+        return index;
+    }
+}
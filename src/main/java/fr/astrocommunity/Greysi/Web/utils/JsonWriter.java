@@ -0,0 +1,305 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JsonWriter - Streaming JSON encoder writing UTF-8 straight into one reusable byte buffer
+ *
+ * Call reset() before each document; the buffer only grows, so steady-state encoding
+ * does not allocate. Strings are escaped and UTF-8 encoded in a single pass.
+ * This is the default wire format (application/json).
+ */
+public class JsonWriter extends PayloadWriter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    public static final String CONTENT_TYPE = "application/json";
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buf;
+    private int len;
+    private boolean needsComma;
+
+    public JsonWriter() {
+        this(8192);
+    }
+
+    public JsonWriter(int initialCapacity) {
+        this.buf = new byte[Math.max(64, initialCapacity)];
+    }
+
+    /**
+     * Start a new document, keeping the buffer
+     */
+    @Override
+    public JsonWriter reset() {
+        len = 0;
+        needsComma = false;
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() {
+        separator();
+        write('{');
+        needsComma = false;
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() {
+        write('}');
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginArray() {
+        separator();
+        write('[');
+        needsComma = false;
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() {
+        write(']');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Write an object key - the next call writes its value
+     */
+    @Override
+    public JsonWriter name(String name) {
+        separator();
+        string(name);
+        write(':');
+        needsComma = false;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) {
+        separator();
+        if (value == null) write(NULL);
+        else string(value);
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) {
+        separator();
+        write(value ? TRUE : FALSE);
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) {
+        separator();
+        number(value);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Same text as Double.toString, without allocating for integral values
+     */
+    @Override
+    public JsonWriter value(double value) {
+        separator();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            write(NULL);
+        } else if (value == (long) value && Math.abs(value) < 1e7) {
+            if (value == 0 && 1 / value < 0) write('-');
+            number((long) value);
+            write('.');
+            write('0');
+        } else {
+            ascii(Double.toString(value));
+        }
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Write an already encoded JSON value as-is
+     */
+    @Override
+    public JsonWriter rawValue(byte[] json, int offset, int length) {
+        separator();
+        ensure(length);
+        System.arraycopy(json, offset, buf, len, length);
+        len += length;
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() {
+        separator();
+        write(NULL);
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Object value) {
+        super.value(value);
+        return this;
+    }
+
+    @Override
+    protected JsonWriter number(Number value) {
+        separator();
+        ascii(value.toString());
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Backing buffer - only the first size() bytes are valid
+     */
+    @Override
+    public byte[] buffer() {
+        return buf;
+    }
+
+    @Override
+    public int size() {
+        return len;
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, len);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private void separator() {
+        if (needsComma) write(',');
+    }
+
+    /**
+     * Quote, escape and UTF-8 encode in one pass
+     */
+    private void string(String str) {
+        int length = str.length();
+        ensure(length * 3 + 2);
+        byte[] b = buf;
+        int pos = len;
+        b[pos++] = '"';
+
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    b[pos++] = (byte) c;
+                    continue;
+                }
+                // Escapes take at most 6 bytes for 1 char - make room for the rest of the string
+                len = pos;
+                ensure(6 + (length - i) * 3 + 1);
+                b = buf;
+                b[pos++] = '\\';
+                switch (c) {
+                    case '"': b[pos++] = '"'; break;
+                    case '\\': b[pos++] = '\\'; break;
+                    case '\n': b[pos++] = 'n'; break;
+                    case '\r': b[pos++] = 'r'; break;
+                    case '\t': b[pos++] = 't'; break;
+                    case '\b': b[pos++] = 'b'; break;
+                    case '\f': b[pos++] = 'f'; break;
+                    default:
+                        b[pos++] = 'u';
+                        b[pos++] = '0';
+                        b[pos++] = '0';
+                        b[pos++] = HEX[c >> 4];
+                        b[pos++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, str.charAt(++i));
+                b[pos++] = (byte) (0xF0 | (cp >> 18));
+                b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                b[pos++] = '?'; // Lone surrogate, not encodable
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        b[pos++] = '"';
+        len = pos;
+    }
+
+    private void number(long value) {
+        if (value == Long.MIN_VALUE) {
+            write(MIN_LONG);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buf[len++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        int pos = len + digits;
+        len = pos;
+        do {
+            buf[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void ascii(String str) {
+        ensure(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            buf[len++] = (byte) str.charAt(i);
+        }
+    }
+
+    private void write(char c) {
+        ensure(1);
+        buf[len++] = (byte) c;
+    }
+
+    private void write(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, len, bytes.length);
+        len += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+        }
+    }
+}
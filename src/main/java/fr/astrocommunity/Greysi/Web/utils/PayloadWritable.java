@@ -0,0 +1,11 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+/**
+ * PayloadWritable - Object that serializes itself into a PayloadWriter without intermediate maps
+ */
+public interface PayloadWritable {
+    /**
+     * Write this object as one value
+     */
+    void writeTo(PayloadWriter writer);
+}
@@ -0,0 +1,106 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PayloadWriter - Streaming structured encoder behind every wire format (JSON text, compact binary)
+ *
+ * Implementations write into one reusable byte buffer; call reset() before each document.
+ */
+public abstract class PayloadWriter {
+
+    /**
+     * Start a new document, keeping the buffer
+     */
+    public abstract PayloadWriter reset();
+
+    public abstract PayloadWriter beginObject();
+
+    public abstract PayloadWriter endObject();
+
+    public abstract PayloadWriter beginArray();
+
+    public abstract PayloadWriter endArray();
+
+    /**
+     * Write an object key - the next call writes its value
+     */
+    public abstract PayloadWriter name(String name);
+
+    public abstract PayloadWriter value(String value);
+
+    public abstract PayloadWriter value(boolean value);
+
+    public abstract PayloadWriter value(long value);
+
+    public abstract PayloadWriter value(double value);
+
+    public abstract PayloadWriter nullValue();
+
+    /**
+     * Write an already encoded value of the same format as-is
+     */
+    public abstract PayloadWriter rawValue(byte[] encoded, int offset, int length);
+
+    /**
+     * Map coordinate - formats may store it with less precision than a double
+     */
+    public PayloadWriter coordinate(double value) {
+        return value(value);
+    }
+
+    /**
+     * Backing buffer - only the first size() bytes are valid
+     */
+    public abstract byte[] buffer();
+
+    public abstract int size();
+
+    /**
+     * Content-Type of the encoded document
+     */
+    public abstract String contentType();
+
+    /**
+     * Any other Number (Float, BigDecimal...)
+     */
+    protected PayloadWriter number(Number value) {
+        return value(value.doubleValue());
+    }
+
+    /**
+     * Write any supported value: null, String, Number, Boolean, Map, List, PayloadWritable (else toString())
+     */
+    @SuppressWarnings("unchecked")
+    public PayloadWriter value(Object value) {
+        if (value == null) return nullValue();
+        if (value instanceof String) return value((String) value);
+        if (value instanceof Double) return value(((Double) value).doubleValue());
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+        if (value instanceof Number) return number((Number) value);
+        if (value instanceof Boolean) return value(((Boolean) value).booleanValue());
+        if (value instanceof PayloadWritable) {
+            ((PayloadWritable) value).writeTo(this);
+            return this;
+        }
+        if (value instanceof Map) {
+            beginObject();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                name(entry.getKey()).value(entry.getValue());
+            }
+            return endObject();
+        }
+        if (value instanceof List) {
+            beginArray();
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) {
+                value(list.get(i));
+            }
+            return endArray();
+        }
+        return value(value.toString());
+    }
+}
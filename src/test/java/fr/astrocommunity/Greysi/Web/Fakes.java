@@ -0,0 +1,76 @@
+package fr.astrocommunity.Greysi.Web;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fakes - Stand-ins for DarkBot API interfaces, answering only what a test or benchmark needs
+ *
+ * Methods are answered by name from a map (values are boxed once, so calls do not allocate
+ * beyond the argument array). Anything else returns a neutral default: 0, false, "", an empty
+ * collection, the first enum constant or another fake. Implementing the interfaces by hand
+ * would break with every DarkBot API addition.
+ * Shared with the benchmarks through the test jar.
+ */
+public final class Fakes {
+    private static final Map<Method, Object> DEFAULTS = new ConcurrentHashMap<>();
+
+    /**
+     * Answer computed from the call arguments
+     */
+    public interface Answer {
+        Object answer(Object[] args);
+    }
+
+    private Fakes() {
+    }
+
+    public static <T> T fake(Class<T> type, Map<String, Object> answers) {
+        Object proxy = Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                switch (name) {
+                    case "equals": return self == args[0];
+                    case "hashCode": return System.identityHashCode(self);
+                    default: return type.getSimpleName();
+                }
+            }
+            if (answers.containsKey(name)) {
+                Object value = answers.get(name);
+                return value instanceof Answer ? ((Answer) value).answer(args) : value;
+            }
+            return DEFAULTS.computeIfAbsent(method, m -> defaultValue(m.getReturnType()));
+        });
+        return type.cast(proxy);
+    }
+
+    public static <T> T fake(Class<T> type) {
+        return fake(type, Collections.emptyMap());
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return (char) 0;
+        if (type == String.class) return "";
+        if (type == Optional.class) return Optional.empty();
+        if (type == Set.class) return Collections.emptySet();
+        if (type == Map.class) return Collections.emptyMap();
+        if (type == List.class || type == Collection.class) return Collections.emptyList();
+        if (type.isEnum()) return type.getEnumConstants()[0];
+        if (type.isInterface()) return fake(type);
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private long now = 1_000_000;
+
+    @Test
+    void startsClosed() {
+        CircuitBreaker breaker = new CircuitBreaker(() -> now);
+        assertTrue(breaker.isClosed());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.recordSuccess());
+    }
+
+    @Test
+    void failureOpensForAJitteredDelay() {
+        CircuitBreaker breaker = new CircuitBreaker(() -> now);
+        long delay = breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(delay >= 1000 && delay <= 2000, "delay " + delay);
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void delayDoublesUpToTheCap() {
+        CircuitBreaker breaker = new CircuitBreaker(() -> now);
+        for (int failure = 1; failure <= 30; failure++) {
+            long full = Math.min(5 * 60_000L, 2000L << Math.min(failure - 1, 20));
+            long delay = breaker.recordFailure();
+            assertTrue(delay >= full / 2 && delay <= full, "failure " + failure + " delay " + delay);
+        }
+    }
+
+    @Test
+    void onlyOneProbeOnceTheDelayPassed() {
+        CircuitBreaker breaker = new CircuitBreaker(() -> now);
+        long delay = breaker.recordFailure();
+
+        now += delay - 1;
+        assertFalse(breaker.allowRequest());
+        now += 1;
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        assertTrue(breaker.recordSuccess());
+        assertTrue(breaker.isClosed());
+    }
+
+    @Test
+    void retryAfterIsAMinimumUpToTheCap() {
+        CircuitBreaker breaker = new CircuitBreaker(() -> now);
+        assertEquals(30_000, breaker.recordFailure(30_000));
+        assertEquals(5 * 60_000L, breaker.recordFailure(3_600_000));
+
+        now += 5 * 60_000L;
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void successResetsTheBackoff() {
+        CircuitBreaker breaker = new CircuitBreaker(() -> now);
+        for (int i = 0; i < 5; i++) breaker.recordFailure();
+        breaker.recordSuccess();
+
+        long delay = breaker.recordFailure();
+        assertTrue(delay <= 2000, "delay " + delay);
+    }
+}
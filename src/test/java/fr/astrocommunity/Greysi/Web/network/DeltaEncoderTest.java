@@ -0,0 +1,100 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaEncoderTest {
+
+    @Test
+    void fullUntilAcknowledged() {
+        DeltaEncoder encoder = new DeltaEncoder();
+
+        Map<String, Object> first = encoder.encode(snapshot(100, 1));
+        assertEquals(1L, first.get("seq"));
+        assertEquals(true, first.get("full"));
+        assertEquals(100, first.get("credits"));
+
+        // A server that never acks keeps receiving full payloads
+        Map<String, Object> second = encoder.encode(snapshot(100, 1));
+        assertEquals(2L, second.get("seq"));
+        assertEquals(true, second.get("full"));
+    }
+
+    @Test
+    void deltaCarriesOnlyChangesAndIdentity() {
+        DeltaEncoder encoder = new DeltaEncoder();
+        encoder.encode(snapshot(100, 1));
+        encoder.acknowledge(1);
+
+        Map<String, Object> delta = encoder.encode(snapshot(100, 2));
+        assertNull(delta.get("full"));
+        assertEquals(1L, delta.get("baseSeq"));
+        assertEquals(2L, delta.get("seq"));
+        assertEquals("bot", delta.get("botId"));
+        assertFalse(delta.containsKey("credits"));
+        assertEquals(Map.of("x", 2), delta.get("hero"));
+    }
+
+    @Test
+    void removedFieldsAreListedOnce() {
+        DeltaEncoder encoder = new DeltaEncoder();
+        Map<String, Object> withTarget = snapshot(100, 1);
+        withTarget.put("target", new HashMap<>(Map.of("x", 1, "y", 2)));
+        encoder.encode(withTarget);
+        encoder.acknowledge(1);
+
+        Map<String, Object> delta = encoder.encode(snapshot(100, 1));
+        assertEquals(List.of("target"), delta.get("removed"));
+    }
+
+    @Test
+    void resyncAndStaleAcks() {
+        DeltaEncoder encoder = new DeltaEncoder();
+        encoder.encode(snapshot(100, 1));
+        encoder.encode(snapshot(200, 1));
+        encoder.acknowledge(2);
+        encoder.acknowledge(1); // Older than the base - ignored
+
+        Map<String, Object> delta = encoder.encode(snapshot(300, 1));
+        assertEquals(2L, delta.get("baseSeq"));
+        assertEquals(300, delta.get("credits"));
+
+        encoder.resync();
+        assertEquals(true, encoder.encode(snapshot(300, 1)).get("full"));
+    }
+
+    @Test
+    void changedOnlyReportsBackgroundUploads() {
+        DeltaEncoder encoder = new DeltaEncoder();
+        Map<String, Object> snapshot = snapshot(100, 1);
+        snapshot.put("performance", 1);
+        encoder.encode(snapshot);
+        assertFalse(encoder.changedOnly(Set.of("performance"))); // Full payloads always count
+        encoder.acknowledge(1);
+
+        snapshot.put("performance", 2);
+        encoder.encode(snapshot);
+        assertTrue(encoder.changedOnly(Set.of("performance")));
+
+        snapshot.put("credits", 101);
+        encoder.encode(snapshot);
+        assertFalse(encoder.changedOnly(Set.of("performance")));
+    }
+
+    private static Map<String, Object> snapshot(int credits, int x) {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("botId", "bot");
+        snapshot.put("credits", credits);
+        snapshot.put("hero", new HashMap<>(Map.of("x", x, "y", 5)));
+        return snapshot;
+    }
+}
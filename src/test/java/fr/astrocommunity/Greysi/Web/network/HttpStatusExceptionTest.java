@@ -0,0 +1,41 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpStatusExceptionTest {
+
+    @Test
+    void retryAfterInSecondsOrAsADate() {
+        long now = 1_700_000_000_000L; // Tue, 14 Nov 2023 22:13:20 GMT
+        assertEquals(120_000, HttpStatusException.parseRetryAfter("120", now));
+        assertEquals(30_000, HttpStatusException.parseRetryAfter("Tue, 14 Nov 2023 22:13:50 GMT", now));
+        assertEquals(0, HttpStatusException.parseRetryAfter("Tue, 14 Nov 2023 22:00:00 GMT", now));
+        assertEquals(0, HttpStatusException.parseRetryAfter("soon", now));
+        assertEquals(0, HttpStatusException.parseRetryAfter(null, now));
+    }
+
+    @Test
+    void onlyOverloadAndThrottlingAreServerBusy() {
+        assertTrue(new HttpStatusException(503, 0).isServerBusy());
+        assertTrue(new HttpStatusException(429, 0).isServerBusy());
+        assertTrue(new HttpStatusException(408, 0).isServerBusy());
+        assertFalse(new HttpStatusException(400, 0).isServerBusy());
+        assertFalse(new HttpStatusException(401, 0).isServerBusy());
+        assertFalse(new HttpStatusException(413, 0).isServerBusy());
+    }
+
+    @Test
+    void foundAmongTheCauses() {
+        HttpStatusException status = new HttpStatusException(429, 5000);
+        assertEquals(status, HttpStatusException.find(new CompletionException(status)));
+        assertNull(HttpStatusException.find(new CompletionException(new IOException("reset"))));
+    }
+}
@@ -0,0 +1,131 @@
+package fr.astrocommunity.Greysi.Web.network;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxTest {
+    private static final long CAP = 16 * 1024 * 1024L;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void drainsInOrder() throws IOException {
+        Outbox outbox = new Outbox(dir, "bot", CAP);
+        append(outbox, "a", "b", "c");
+
+        assertEquals(Arrays.asList("a", "b", "c"), drain(outbox, 10));
+        assertTrue(outbox.isEmpty());
+        assertFalse(outbox.drain(records -> true, 10, 1024));
+    }
+
+    @Test
+    void refusedBatchIsKept() throws IOException {
+        Outbox outbox = new Outbox(dir, "bot", CAP);
+        append(outbox, "a", "b");
+
+        assertFalse(outbox.drain(records -> false, 10, 1024));
+        assertEquals(Arrays.asList("a", "b"), drain(outbox, 10));
+    }
+
+    @Test
+    void restartResumesAfterTheLastSentRecord() throws IOException {
+        Outbox outbox = new Outbox(dir, "bot", CAP);
+        append(outbox, "a", "b", "c");
+        assertEquals(Arrays.asList("a", "b"), drain(outbox, 2));
+        outbox.close();
+
+        Outbox reopened = new Outbox(dir, "bot", CAP);
+        assertEquals(List.of("c"), drain(reopened, 10));
+        assertTrue(reopened.isEmpty());
+    }
+
+    @Test
+    void corruptRecordEndsItsSegment() throws IOException {
+        Outbox outbox = new Outbox(dir, "bot", CAP);
+        append(outbox, "first", "second", "third");
+        outbox.close();
+
+        // Flip a byte in the body of "second": header (8) + "first" (5) + header (8)
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, "bot-0.log"), "rw")) {
+            file.seek(8 + 5 + 8);
+            file.write('S');
+        }
+
+        Outbox reopened = new Outbox(dir, "bot", CAP);
+        assertEquals(List.of("first"), drain(reopened, 10));
+        assertTrue(reopened.isEmpty());
+    }
+
+    @Test
+    void tornTailIsDropped() throws IOException {
+        Outbox outbox = new Outbox(dir, "bot", CAP);
+        append(outbox, "first", "second");
+        outbox.close();
+
+        // Crash in the middle of writing "second"
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, "bot-0.log"), "rw")) {
+            file.setLength(8 + 5 + 8 + 3);
+        }
+
+        Outbox reopened = new Outbox(dir, "bot", CAP);
+        assertEquals(List.of("first"), drain(reopened, 10));
+        assertTrue(reopened.isEmpty());
+    }
+
+    @Test
+    void oldestSegmentIsDroppedOverTheCap() throws IOException {
+        Outbox outbox = new Outbox(dir, "bot", 1536 * 1024);
+        byte[] big = new byte[600 * 1024];
+        for (int i = 0; i < 3; i++) {
+            Arrays.fill(big, (byte) ('a' + i));
+            outbox.append(big, big.length);
+        }
+
+        // Records 1 and 2 filled the first segment, which was dropped once record 3 started another
+        List<byte[]> sent = new ArrayList<>();
+        assertTrue(outbox.drain(records -> sent.addAll(records), 10, 8 * 1024 * 1024));
+        assertEquals(1, sent.size());
+        assertEquals('c', sent.get(0)[0]);
+    }
+
+    @Test
+    void batchStopsAtTheByteLimit() throws IOException {
+        Outbox outbox = new Outbox(dir, "bot", CAP);
+        append(outbox, "aaaa", "bbbb", "cccc");
+
+        List<byte[]> sent = new ArrayList<>();
+        assertTrue(outbox.drain(records -> sent.addAll(records), 10, 8));
+        assertEquals(2, sent.size());
+        assertArrayEquals("bbbb".getBytes(StandardCharsets.UTF_8), sent.get(1));
+    }
+
+    private static void append(Outbox outbox, String... records) throws IOException {
+        for (String record : records) {
+            byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+            outbox.append(bytes, bytes.length);
+        }
+    }
+
+    private static List<String> drain(Outbox outbox, int maxRecords) throws IOException {
+        List<String> sent = new ArrayList<>();
+        outbox.drain(records -> {
+            for (byte[] record : records) sent.add(new String(record, StandardCharsets.UTF_8));
+            return true;
+        }, maxRecords, 1024);
+        return sent;
+    }
+}
@@ -0,0 +1,76 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandRegistryTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void emptyAnswerIsShared() throws IOException {
+        CommandRegistry registry = new CommandRegistry(dir);
+
+        assertSame(CommandRegistry.Message.EMPTY, registry.parse("{}"));
+        assertSame(CommandRegistry.Message.EMPTY, registry.parse("{\"nested\":{\"a\":1},\"configCommands\":[]}"));
+        assertTrue(registry.run(CommandRegistry.Message.EMPTY));
+    }
+
+    @Test
+    void scalarsWithoutCommands() throws IOException {
+        CommandRegistry.Message message = new CommandRegistry(dir).parse("{\"ack\":42,\"resync\":true}");
+
+        assertEquals(42, message.getLong("ack", -1));
+        assertTrue(message.getBoolean("resync"));
+        assertFalse(message.hasCommands());
+    }
+
+    @Test
+    void topLevelCommandRunsFirst() throws IOException {
+        CommandRegistry registry = new CommandRegistry(dir);
+        List<String> ran = new ArrayList<>();
+        registry.register("start", command -> ran.add("start"));
+        registry.register("writeConfig", command -> ran.add(command.get("name")));
+
+        CommandRegistry.Message message = registry.parse(
+                "{\"configCommands\":[{\"type\":\"writeConfig\",\"name\":\"a\"}],\"command\":\"start\"}");
+
+        assertTrue(message.hasCommands());
+        assertTrue(registry.run(message));
+        assertEquals(List.of("start", "a"), ran);
+    }
+
+    @Test
+    void failedHandlerIsReported() throws IOException {
+        CommandRegistry registry = new CommandRegistry(dir);
+        registry.register("stop", command -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertFalse(registry.run(registry.parse("{\"command\":\"stop\"}")));
+        assertTrue(registry.run(registry.parse("{\"command\":\"unknown\"}")));
+    }
+
+    @Test
+    void configDocumentIsSpooledAndDeleted() throws IOException {
+        CommandRegistry registry = new CommandRegistry(dir);
+        List<File> payloads = new ArrayList<>();
+        registry.register("writeConfig", command -> payloads.add(command.getPayload()));
+
+        registry.run(registry.parse(
+                "{\"configCommands\":[{\"type\":\"writeConfig\",\"configJson\":{\"a\":[1,2]}}]}"));
+
+        assertEquals(1, payloads.size());
+        assertFalse(payloads.get(0).exists());
+    }
+}
@@ -0,0 +1,112 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import eu.darkbot.api.game.other.GameMap;
+import eu.darkbot.api.game.other.Health;
+import eu.darkbot.api.managers.HeroAPI;
+import eu.darkbot.api.managers.StarSystemAPI;
+import fr.astrocommunity.Greysi.Web.Fakes;
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeathTrackerTest {
+    private int hp;
+    private DeathTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        Health health = Fakes.fake(Health.class, Map.of("getHp", (Fakes.Answer) args -> hp));
+        GameMap map = Fakes.fake(GameMap.class, Map.of("getId", 3, "getName", "1-3"));
+        tracker = new DeathTracker(Fakes.fake(HeroAPI.class, Map.of("getHealth", health)),
+                Fakes.fake(StarSystemAPI.class, Map.of("getCurrentMap", map)));
+    }
+
+    @Test
+    void deathIsRecordedOnceAndReportedOnce() {
+        die();
+        hp = 0;
+        tracker.tick(); // Still dead
+
+        assertEquals(1, tracker.getDeathCount());
+        assertTrue(tracker.hasJustDied());
+        assertFalse(tracker.hasJustDied());
+
+        hp = 1000;
+        tracker.tick();
+        assertTrue(tracker.hasJustRespawned());
+    }
+
+    @Test
+    void logCarriesMapNames() {
+        die();
+        JsonWriter writer = new JsonWriter(256);
+        writer.reset().value(tracker.getDeathLog());
+        String json = new String(writer.buffer(), 0, writer.size(), StandardCharsets.UTF_8);
+
+        assertTrue(json.contains("\"map\":\"1-3\""), json);
+        assertTrue(json.contains("\"mapId\":3"), json);
+    }
+
+    @Test
+    void acknowledgedDeathsAreNotSentAgain() {
+        die();
+        die();
+        tracker.sent(5, 2);
+
+        tracker.acknowledge(4); // Not the upload that carried them
+        assertEquals(2, tracker.getDeathLog().size());
+
+        tracker.acknowledge(5);
+        assertEquals(0, tracker.getDeathLog().size());
+        assertEquals(2, tracker.getDeathLog().getFrom());
+    }
+
+    @Test
+    void laterAckDropsUnmatchedUploads() {
+        die();
+        tracker.sent(5, 1);
+        tracker.acknowledge(6); // seq 6 never carried deaths - seq 5's are not confirmed by it
+
+        assertEquals(1, tracker.getDeathLog().size());
+        tracker.acknowledge(5); // Already dropped
+        assertEquals(1, tracker.getDeathLog().size());
+    }
+
+    @Test
+    void confirmIsClampedAndResendStartsOver() {
+        die();
+        die();
+        tracker.confirm(1);
+        assertEquals(1, tracker.getDeathLog().getFrom());
+
+        tracker.confirm(10);
+        assertEquals(0, tracker.getDeathLog().size());
+        assertEquals(2, tracker.getDeathLog().getFrom());
+
+        tracker.resend();
+        assertEquals(2, tracker.getDeathLog().size());
+    }
+
+    @Test
+    void ringKeepsTheNewestDeaths() {
+        for (int i = 0; i < 130; i++) die();
+
+        assertEquals(130, tracker.getDeathCount());
+        assertEquals(128, tracker.getDeathLog().size());
+        assertEquals(2, tracker.getDeathLog().getFrom());
+    }
+
+    private void die() {
+        hp = 1000;
+        tracker.tick();
+        hp = 0;
+        tracker.tick();
+    }
+}
@@ -0,0 +1,143 @@
+package fr.astrocommunity.Greysi.Web.services;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import eu.darkbot.api.game.other.GameMap;
+import eu.darkbot.api.game.other.LocationInfo;
+import eu.darkbot.api.managers.HeroAPI;
+import eu.darkbot.api.managers.StarSystemAPI;
+import fr.astrocommunity.Greysi.Web.Fakes;
+import fr.astrocommunity.Greysi.Web.utils.JsonWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeroTrailTest {
+    private double x;
+    private double y;
+    private int mapId = 1;
+    private HeroTrail trail;
+
+    @BeforeEach
+    void setUp() {
+        LocationInfo location = Fakes.fake(LocationInfo.class,
+                Map.of("getX", (Fakes.Answer) args -> x, "getY", (Fakes.Answer) args -> y));
+        GameMap map = Fakes.fake(GameMap.class, Map.of("getId", (Fakes.Answer) args -> mapId));
+        trail = new HeroTrail(Fakes.fake(HeroAPI.class, Map.of("getLocationInfo", location)),
+                Fakes.fake(StarSystemAPI.class, Map.of("getCurrentMap", map)));
+    }
+
+    @Test
+    void standingStillRecordsNothing() {
+        for (int i = 0; i < 5; i++) trail.tick(1000 + i * 50L);
+        assertEquals(1, trail.getTrail().size());
+
+        mapId = 2; // Same coordinates on another map is a move
+        trail.tick(2000);
+        assertEquals(2, trail.getTrail().size());
+    }
+
+    @Test
+    void pointsDecodeToWhatWasRecorded() {
+        long[][] recorded = {{1000, 100, 200}, {1050, 110, 195}, {1100, 121, 185}, {1175, -40, 185}, {1200, 7000, 9000}};
+        for (long[] point : recorded) {
+            if (point[0] == 1175) mapId = 5;
+            x = point[1];
+            y = point[2];
+            trail.tick(point[0]);
+        }
+
+        JsonObject json = write(trail.getTrail());
+        assertEquals(0, json.get("from").getAsLong());
+        assertEquals(recorded.length, json.get("count").getAsInt());
+        assertEquals(1000, json.get("start").getAsLong());
+        assertEquals("[0,1,3,5]", json.get("maps").toString());
+
+        List<long[]> decoded = decode(json.get("start").getAsLong(), json.get("points").getAsString());
+        assertEquals(recorded.length, decoded.size());
+        for (int i = 0; i < recorded.length; i++) {
+            assertEquals(recorded[i][0], decoded.get(i)[0]);
+            assertEquals(recorded[i][1], decoded.get(i)[1]);
+            assertEquals(recorded[i][2], decoded.get(i)[2]);
+        }
+    }
+
+    @Test
+    void constantMovementEncodesAsZeros() {
+        for (int i = 0; i < 20; i++) {
+            x = 100 + i * 7;
+            y = 300 - i * 3;
+            trail.tick(1000 + i * 50L);
+        }
+
+        String points = write(trail.getTrail()).get("points").getAsString();
+        // From the third point on, every delta of delta is 0: one '?' per value
+        assertTrue(points.endsWith("?".repeat(18 * 3)), points);
+    }
+
+    @Test
+    void acknowledgedPointsAreNotSentAgain() {
+        for (int i = 0; i < 4; i++) {
+            x = i;
+            trail.tick(1000 + i);
+        }
+        trail.sent(7, 3);
+        trail.acknowledge(7);
+
+        HeroTrail.Trail rest = trail.getTrail();
+        assertEquals(3, rest.getFrom());
+        assertEquals(1, rest.size());
+    }
+
+    @Test
+    void ringKeepsTheNewestPoints() {
+        for (int i = 0; i < 2100; i++) {
+            x = i;
+            trail.tick(1000 + i);
+        }
+
+        HeroTrail.Trail all = trail.getTrail();
+        assertEquals(2048, all.size());
+        assertEquals(52, all.getFrom());
+    }
+
+    private static JsonObject write(HeroTrail.Trail trail) {
+        JsonWriter writer = new JsonWriter(1024);
+        writer.reset().value(trail);
+        return JsonParser.parseString(new String(writer.buffer(), 0, writer.size(), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    /**
+     * Reference decoder: polyline zigzag varints, deltas of deltas from (start, 0, 0)
+     */
+    private static List<long[]> decode(long start, String points) {
+        List<long[]> decoded = new ArrayList<>();
+        long[] value = {start, 0, 0};
+        long[] delta = new long[3];
+        int at = 0;
+        while (at < points.length()) {
+            for (int k = 0; k < 3; k++) {
+                long v = 0;
+                int shift = 0;
+                int c;
+                do {
+                    c = points.charAt(at++) - 63;
+                    v |= (long) (c & 0x1f) << shift;
+                    shift += 5;
+                } while (c >= 0x20);
+                long change = (v >>> 1) ^ -(v & 1);
+                delta[k] += change;
+                value[k] += delta[k];
+            }
+            decoded.add(value.clone());
+        }
+        return decoded;
+    }
+}
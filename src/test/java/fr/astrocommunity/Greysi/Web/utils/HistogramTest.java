@@ -0,0 +1,70 @@
+package fr.astrocommunity.Greysi.Web.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistogramTest {
+
+    @Test
+    void valuesLandInPowerOfTwoBuckets() {
+        Histogram histogram = new Histogram(1, 8);
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(5);
+
+        assertEquals(2, histogram.count(0)); // <= 1
+        assertEquals(1, histogram.count(1)); // <= 2
+        assertEquals(2, histogram.count(2)); // <= 4
+        assertEquals(1, histogram.count(3)); // <= 8
+        assertEquals(6, histogram.count());
+        assertEquals(15, histogram.sum());
+    }
+
+    @Test
+    void lastBucketTakesEverythingAbove() {
+        Histogram histogram = new Histogram(10, 4);
+        histogram.record(Long.MAX_VALUE / 2);
+
+        assertEquals(1, histogram.count(3));
+        assertEquals(40, histogram.upperBound(2));
+        assertEquals(Long.MAX_VALUE, histogram.upperBound(3));
+        assertEquals(40, histogram.percentile(50)); // Reports the bound below the open bucket
+    }
+
+    @Test
+    void percentilesAreBucketUpperBounds() {
+        Histogram histogram = new Histogram(1, 10);
+        assertEquals(0, histogram.percentile(50));
+
+        for (int i = 0; i < 90; i++) histogram.record(1);
+        for (int i = 0; i < 10; i++) histogram.record(100);
+
+        assertEquals(1, histogram.percentile(50));
+        assertEquals(1, histogram.percentile(80));
+        assertEquals(128, histogram.percentile(99));
+        assertEquals(128, histogram.percentile(100));
+    }
+
+    @Test
+    void copyIsIndependentAndAddSubtracts() {
+        Histogram histogram = new Histogram(1, 8);
+        histogram.record(3);
+        Histogram copy = histogram.copy();
+        histogram.record(3);
+
+        assertEquals(1, copy.count());
+        assertEquals(2, histogram.count());
+
+        histogram.add(copy, -1);
+        assertEquals(1, histogram.count(2));
+        assertEquals(3, histogram.sum());
+
+        histogram.add(copy, 1);
+        assertEquals(2, histogram.count(2));
+        assertEquals(6, histogram.sum());
+    }
+}